@@ -0,0 +1,61 @@
+package com.teddy.study.querydsl.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * -Dload.xxx 시스템 프로퍼티로 받는 부하 테스트 옵션.
+ */
+class LoadTestOptions {
+
+    final int members = Integer.getInteger("load.members", 100_000);
+    final int teams = Integer.getInteger("load.teams", 10);
+    final int concurrency = Integer.getInteger("load.concurrency", 64);
+    final Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup", 5));
+    final Duration duration = Duration.ofSeconds(Long.getLong("load.duration", 20));
+    final List<String> endpoints = split(System.getProperty("load.endpoints", "/v1/members,/v2/members,/v3/members"));
+    // 목표 요청률(초당)을 단계별로 올려가며 측정한다.
+    final List<Integer> rates = toInts(split(System.getProperty("load.rates", "100,200,400,800,1600")));
+    // 이 p99 (ms) 를 넘거나 목표 요청률의 95% 를 못 채우면 한계로 본다.
+    final double sloP99Millis = Double.parseDouble(System.getProperty("load.slo-p99-ms", "100"));
+    // 검색 조건 종류:가중치
+    final Map<String, Integer> mix = toMix(System.getProperty("load.mix", "all:1,team:3,teamAge:4,username:2"));
+    // 앱 쪽 추가 설정 (spring 프로퍼티, 콤마 구분)
+    final List<String> appProperties = split(System.getProperty("load.app-properties", ""));
+
+    private static List<String> split(String value) {
+        List<String> parts = new ArrayList<>();
+        for (String part : value.split(",")) {
+            if (!part.isBlank()) {
+                parts.add(part.trim());
+            }
+        }
+        return parts;
+    }
+
+    private static List<Integer> toInts(List<String> values) {
+        List<Integer> ints = new ArrayList<>();
+        values.forEach(value -> ints.add(Integer.parseInt(value)));
+        return ints;
+    }
+
+    private static Map<String, Integer> toMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : split(value)) {
+            String[] pair = entry.split(":");
+            mix.put(pair[0], pair.length > 1 ? Integer.parseInt(pair[1]) : 1);
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "members=" + members + ", teams=" + teams + ", concurrency=" + concurrency
+                + ", warmup=" + warmup + ", duration=" + duration + ", rates=" + rates
+                + ", mix=" + mix + ", endpoints=" + endpoints + ", app=" + appProperties
+                + ", sloP99=" + sloP99Millis + "ms";
+    }
+}
@@ -0,0 +1,186 @@
+package com.teddy.study.querydsl.loadtest;
+
+import com.teddy.study.querydsl.QuerydslApplication;
+import com.teddy.study.querydsl.contorller.StartupPipeline;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 인메모리 H2 에 데이터를 채운 앱을 띄우고 /v1 ~ /v3 /members 에 단계별 요청률로 부하를 준다.
+ *
+ * 각 요청은 예정된 시각에 보내고, 지연시간은 실제 전송 시각이 아니라 예정 시각부터 잰다.
+ * 서버가 밀려서 요청을 늦게 보내게 되어도 그 대기 시간이 빠지지 않는다. (coordinated omission 보정)
+ *
+ * ./gradlew loadTest -Dload.members=100000 -Dload.rates=200,400,800
+ */
+public class MemberLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions();
+        System.out.println("load test: " + options);
+
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "querydsl.init.member-count=" + options.members,
+                "querydsl.init.team-count=" + options.teams,
+                "logging.level.org.hibernate.SQL=warn"));
+        properties.addAll(options.appProperties);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .profiles("local", "mem")
+                .properties(properties.toArray(new String[0]))
+                .run(args)) {
+
+            // 초기 데이터 적재는 기동 후 백그라운드에서 진행되므로 끝날 때까지 기다린다.
+            context.getBean(StartupPipeline.class).awaitWarm(Duration.ofMinutes(30));
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            new MemberLoadTest(options, baseUrl).run();
+        }
+    }
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final HttpClient client;
+    private final SearchRequestMix mix;
+
+    MemberLoadTest(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.mix = new SearchRequestMix(options.mix, options.members, options.teams);
+    }
+
+    void run() throws Exception {
+        for (String endpoint : options.endpoints) {
+            System.out.println();
+            System.out.println("== " + endpoint + " ==");
+            System.out.printf("%8s %10s %8s %10s %10s %10s %10s %10s%n",
+                    "target/s", "achieved/s", "errors", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "raw p99");
+
+            Integer ceiling = null;
+            for (int rate : options.rates) {
+                phase(endpoint, rate, options.warmup);
+                Result result = phase(endpoint, rate, options.duration);
+                System.out.println(result.format(rate));
+
+                boolean withinSlo = result.achievedRate() >= rate * 0.95
+                        && result.corrected.getValueAtPercentile(99) / 1_000.0 <= options.sloP99Millis;
+                if (!withinSlo) {
+                    break;
+                }
+                ceiling = rate;
+            }
+            System.out.println("throughput ceiling (p99 <= " + options.sloP99Millis + "ms): "
+                    + (ceiling == null ? "below " + options.rates.get(0) : ceiling) + " req/s");
+        }
+    }
+
+    private Result phase(String endpoint, int rate, Duration duration) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) * options.concurrency / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int w = 0; w < options.concurrency; w++) {
+            // 워커마다 시작 시각을 고르게 흩어 동시에 몰리지 않게 한다.
+            long firstSend = start + intervalNanos * w / options.concurrency;
+            futures.add(workers.submit(() -> worker(endpoint, firstSend, intervalNanos, end)));
+        }
+
+        Result total = new Result();
+        for (Future<Result> future : futures) {
+            total.add(future.get());
+        }
+        // 밀린 요청은 end 뒤에도 보내므로 계획한 기간이 아니라 마지막 응답까지 걸린 실제 시간으로 나눈다.
+        total.elapsedNanos = System.nanoTime() - start;
+        workers.shutdown();
+        return total;
+    }
+
+    private Result worker(String endpoint, long firstSend, long intervalNanos, long end) {
+        Result result = new Result();
+        for (long intended = firstSend; intended < end; intended += intervalNanos) {
+            long now = System.nanoTime();
+            if (now < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+
+            long sent = System.nanoTime();
+            boolean ok = send(endpoint);
+            long done = System.nanoTime();
+
+            result.record(TimeUnit.NANOSECONDS.toMicros(done - intended), TimeUnit.NANOSECONDS.toMicros(done - sent), ok);
+        }
+        return result;
+    }
+
+    private boolean send(String endpoint) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + mix.next(endpoint)))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    static class Result {
+        // 예정 시각 기준 (보정)
+        final Histogram corrected = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        // 실제 전송 시각 기준 (보정 없음, 비교용)
+        final Histogram raw = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long errors;
+        long elapsedNanos;
+
+        void record(long correctedMicros, long rawMicros, boolean ok) {
+            corrected.recordValue(Math.min(correctedMicros, HIGHEST_TRACKABLE_MICROS));
+            raw.recordValue(Math.min(rawMicros, HIGHEST_TRACKABLE_MICROS));
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void add(Result other) {
+            corrected.add(other.corrected);
+            raw.add(other.raw);
+            errors += other.errors;
+        }
+
+        // 성공 응답 수 / 첫 예정 시각부터 마지막 응답까지의 실제 시간
+        double achievedRate() {
+            return (corrected.getTotalCount() - errors) / (elapsedNanos / 1e9);
+        }
+
+        String format(int rate) {
+            return String.format("%8d %10.0f %8d %10.2f %10.2f %10.2f %10.2f %10.2f",
+                    rate, achievedRate(), errors,
+                    corrected.getValueAtPercentile(50) / 1_000.0,
+                    corrected.getValueAtPercentile(99) / 1_000.0,
+                    corrected.getValueAtPercentile(99.9) / 1_000.0,
+                    corrected.getMaxValue() / 1_000.0,
+                    raw.getValueAtPercentile(99) / 1_000.0);
+        }
+    }
+}
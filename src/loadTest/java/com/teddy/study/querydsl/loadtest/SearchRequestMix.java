@@ -0,0 +1,55 @@
+package com.teddy.study.querydsl.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 가중치에 따라 검색 조건 쿼리스트링을 만든다. InitMember 가 만드는 데이터 분포(teamA.., member0.., 나이 0~99)에 맞춘다.
+ */
+class SearchRequestMix {
+
+    private final List<String> kinds = new ArrayList<>();
+    private final int members;
+    private final int teams;
+
+    SearchRequestMix(Map<String, Integer> weights, int members, int teams) {
+        weights.forEach((kind, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                kinds.add(kind);
+            }
+        });
+        this.members = members;
+        this.teams = teams;
+    }
+
+    String next(String endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder query = new StringBuilder(endpoint).append('?');
+        switch (kinds.get(random.nextInt(kinds.size()))) {
+            case "team":
+                query.append("teamName=").append(teamName(random.nextInt(teams))).append('&');
+                break;
+            case "teamAge":
+                int ageGoe = random.nextInt(90);
+                query.append("teamName=").append(teamName(random.nextInt(teams)))
+                        .append("&ageGoe=").append(ageGoe)
+                        .append("&ageLoe=").append(ageGoe + 10).append('&');
+                break;
+            case "username":
+                query.append("username=member").append(random.nextInt(members)).append('&');
+                break;
+            default:
+                break;
+        }
+        if (!endpoint.startsWith("/v1/")) {
+            query.append("page=").append(random.nextInt(10)).append("&size=20");
+        }
+        return query.toString();
+    }
+
+    private String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+}
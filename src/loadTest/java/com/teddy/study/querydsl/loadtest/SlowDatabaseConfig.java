@@ -0,0 +1,60 @@
+package com.teddy.study.querydsl.loadtest;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 느린 DB 를 흉내 낸다. 커넥션을 잡은 채로 문장 실행마다 load.db-latency-ms 만큼 기다린다.
+ * 실제 드라이버처럼 커넥션 모니터를 잡은 채 (synchronized 안에서) 기다리므로, 가상 스레드는 그동안 캐리어를 고정한다.
+ */
+@Configuration
+public class SlowDatabaseConfig {
+
+    static final long LATENCY_MILLIS = Long.getLong("load.db-latency-ms", 20);
+
+    @Bean
+    public static BeanPostProcessor slowDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? new SlowDataSource((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    static class SlowDataSource extends DelegatingDataSource {
+
+        SlowDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = obtainTargetDataSource().getConnection();
+            return (Connection) Proxy.newProxyInstance(SlowDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        try {
+                            if (method.getName().startsWith("prepare")) {
+                                // 드라이버가 소켓 I/O 중에 잡는 모니터를 흉내 낸다. (pinning 재현용, 커넥션마다 따로라 경합은 없다)
+                                synchronized (connection) {
+                                    TimeUnit.MILLISECONDS.sleep(LATENCY_MILLIS);
+                                    return method.invoke(connection, args);
+                                }
+                            }
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.teddy.study.querydsl.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기동 설정별로 앱을 매번 새 JVM 으로 띄워 아래 두 시간을 잰다.
+ * - first request: 프로세스 시작 ~ /v3/members 가 처음 200 을 돌려줄 때 (트래픽을 받을 수 있는 시점)
+ * - ready: 프로세스 시작 ~ /actuator/health/readiness 가 UP 일 때 (초기 데이터와 워밍업까지 끝난 시점)
+ *
+ * ./gradlew startupBenchmark -Dstartup.members=200000 -Dstartup.runs=5
+ */
+public class StartupBenchmark {
+
+    private static final int MEMBERS = Integer.getInteger("startup.members", 200_000);
+    private static final int TEAMS = Integer.getInteger("startup.teams", 10);
+    private static final int RUNS = Integer.getInteger("startup.runs", 5);
+    private static final Duration TIMEOUT = Duration.ofMinutes(Long.getLong("startup.timeout-minutes", 10));
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    public static void main(String[] args) throws Exception {
+        Path snapshotDir = Files.createTempDirectory("querydsl-seed");
+
+        Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("sync seed", List.of("--querydsl.startup.async=false"));
+        configurations.put("async seed", List.of());
+        configurations.put("async + snapshot", List.of("--querydsl.init.snapshot-dir=" + snapshotDir));
+        configurations.put("async + snapshot + lazy", List.of("--querydsl.init.snapshot-dir=" + snapshotDir,
+                "--spring.profiles.active=local,mem,fast-start"));
+
+        StartupBenchmark benchmark = new StartupBenchmark();
+        // 스냅샷 생성 (측정하지 않음)
+        benchmark.start(List.of("--querydsl.init.snapshot-dir=" + snapshotDir));
+
+        System.out.printf("== startup benchmark (%d members, %d runs each) ==%n", MEMBERS, RUNS);
+        for (Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+            List<Long> firstRequest = new ArrayList<>();
+            List<Long> ready = new ArrayList<>();
+            for (int i = 0; i < RUNS; i++) {
+                long[] result = benchmark.start(configuration.getValue());
+                firstRequest.add(result[0]);
+                ready.add(result[1]);
+            }
+            System.out.printf("%-26s first request %s | ready %s%n", configuration.getKey(), summary(firstRequest), summary(ready));
+        }
+    }
+
+    /**
+     * @return {first request ms, ready ms}
+     */
+    private long[] start(List<String> arguments) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "com.teddy.study.querydsl.QuerydslApplication",
+                "--spring.profiles.active=local,mem",
+                "--server.port=" + port,
+                "--querydsl.init.member-count=" + MEMBERS,
+                "--querydsl.init.team-count=" + TEAMS,
+                "--logging.level.org.hibernate.SQL=warn"));
+        command.addAll(arguments);
+
+        File log = File.createTempFile("startup-benchmark", ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            long firstRequest = awaitOk(process, start, "http://localhost:" + port + "/v3/members?size=1", log);
+            long ready = awaitOk(process, start, "http://localhost:" + port + "/actuator/health/readiness", log);
+            return new long[]{firstRequest, ready};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            log.delete();
+        }
+    }
+
+    private long awaitOk(Process process, long start, String url, File log) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5)).GET().build();
+        long deadline = start + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("application exited, see " + log);
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+            } catch (IOException e) {
+                // 아직 포트가 열리지 않았다.
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException("timed out waiting for " + url);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String summary(List<Long> millis) {
+        List<Long> sorted = new ArrayList<>(millis);
+        Collections.sort(sorted);
+        return String.format("median %6dms (min %6d, max %6d)", sorted.get(sorted.size() / 2), sorted.get(0), sorted.get(sorted.size() - 1));
+    }
+}
@@ -0,0 +1,56 @@
+package com.teddy.study.querydsl.loadtest;
+
+import com.teddy.study.querydsl.QuerydslApplication;
+import com.teddy.study.querydsl.contorller.StartupPipeline;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 느린 DB 조건에서 플랫폼 스레드(Tomcat 기본 풀)와 가상 스레드(virtual 프로파일)를 같은 부하로 비교한다. JDK 21 필요.
+ *
+ * ./gradlew virtualThreadBenchmark -Pjdk21 -Dload.concurrency=1000 -Dload.db-latency-ms=20
+ */
+public class VirtualThreadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions();
+        System.out.println("virtual thread benchmark: db latency " + SlowDatabaseConfig.LATENCY_MILLIS + "ms, " + options);
+
+        run("platform threads", options, "local", "mem");
+        run("virtual threads", options, "local", "mem", "virtual");
+    }
+
+    private static void run(String label, LoadTestOptions options, String... profiles) throws Exception {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "querydsl.init.member-count=" + options.members,
+                "querydsl.init.team-count=" + options.teams,
+                // 한도 초과로 503 이 나면 스레드 모델 차이가 가려지므로 끈다.
+                "querydsl.concurrency-limit.enabled=false",
+                "logging.level.org.hibernate.SQL=warn"));
+        properties.addAll(options.appProperties);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class, SlowDatabaseConfig.class)
+                .profiles(profiles)
+                .properties(properties.toArray(new String[0]))
+                .run()) {
+
+            context.getBean(StartupPipeline.class).awaitWarm(Duration.ofMinutes(30));
+            // ThreadMXBean 은 플랫폼 스레드만 센다. (가상 스레드는 빠지고, 캐리어는 ForkJoinPool 워커로 들어간다)
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            System.out.println();
+            System.out.println("######## " + label + " (platform threads before: " + threads.getThreadCount()
+                    + ", carrier parallelism: " + System.getProperty("jdk.virtualThreadScheduler.parallelism", "cores") + ")");
+            new MemberLoadTest(options, "http://localhost:" + context.getEnvironment().getProperty("local.server.port")).run();
+            System.out.println("######## " + label + " (platform threads after: " + threads.getThreadCount()
+                    + ", peak: " + threads.getPeakThreadCount() + ")");
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.teddy.study.querydsl;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.teddy.study.querydsl.support.HoistingJPAQueryFactory;
+import com.teddy.study.querydsl.support.SubqueryHoister;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 
 import javax.persistence.EntityManager;
 
-@SpringBootApplication
+// R2DBC 커넥션은 ReactiveConfig 가 spring.datasource 설정으로 직접 만든다. (ConnectionFactory 빈이 생기면 DataSource 자동 설정이 꺼진다)
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
@@ -15,8 +19,9 @@ public class QuerydslApplication {
 	}
 
 	@Bean
-	public JPAQueryFactory jpaQueryFactory(EntityManager em) {
-		return new JPAQueryFactory(em);
+	public JPAQueryFactory jpaQueryFactory(EntityManager em, SubqueryHoister subqueryHoister) {
+		// 바깥 쿼리와 상관없는 스칼라 서브쿼리는 먼저 한 번 계산해 바인드 값으로 넣는다.
+		return new HoistingJPAQueryFactory(em, subqueryHoister);
 	}
 
 }
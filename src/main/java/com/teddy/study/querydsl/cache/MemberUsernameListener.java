@@ -0,0 +1,51 @@
+package com.teddy.study.querydsl.cache;
+
+import com.teddy.study.querydsl.entity.Member;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+
+/**
+ * 새 회원과 이름이 바뀐 회원의 username 을 {@link UsernameFilter} 와 {@link UsernameNgramIndex} 에 넣는다. (Spring 이 만드는 JPA 엔티티 리스너)
+ * insert / update 직후에 넣어 커밋 전부터 다른 스레드의 조회가 걸러지지 않게 하고,
+ * 커밋 시점에 진행 중인 재구성에 빠지지 않도록 커밋 후에 한 번 더 넣는다.
+ */
+public class MemberUsernameListener {
+
+    // EntityManagerFactory 생성 중에 만들어지므로 빈은 나중에 찾는다.
+    private final ObjectProvider<UsernameFilter> usernameFilter;
+    private final ObjectProvider<UsernameNgramIndex> usernameIndex;
+
+    public MemberUsernameListener(ObjectProvider<UsernameFilter> usernameFilter,
+                                  ObjectProvider<UsernameNgramIndex> usernameIndex) {
+        this.usernameFilter = usernameFilter;
+        this.usernameIndex = usernameIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void postWrite(Member member) {
+        if (member.getUsername() == null) {
+            return;
+        }
+        Long id = member.getId();
+        String username = member.getUsername();
+        add(id, username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(id, username);
+                }
+            });
+        }
+    }
+
+    private void add(Long id, String username) {
+        usernameFilter.ifAvailable(filter -> filter.add(username));
+        usernameIndex.ifAvailable(index -> index.add(id, username));
+    }
+}
@@ -0,0 +1,324 @@
+package com.teddy.study.querydsl.cache;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 직렬화된 응답 본문을 힙 밖(direct ByteBuffer)에 보관한다. 캐시가 커져도 GC 가 훑을 객체가 늘지 않는다.
+ *
+ * - 키 해시로 세그먼트를 고르고, 세그먼트마다 버퍼 하나를 고정 크기 블록으로 나눠 쓴다. (빈 블록 목록으로 할당 / 반납)
+ * - 자리가 모자라면 데이터 버전이 지난 항목을 먼저 비우고, 그래도 모자라면 LRU 순서로 비운다.
+ *   이때 새 항목의 최근 조회 빈도(TinyLFU 스케치)가 밀려날 항목보다 높을 때만 들인다.
+ * - 조회 결과는 락 안에서 byte[] 로 복사해 돌려준다. 락을 쥔 채 소켓에 쓰지 않기 위해서다.
+ */
+public class OffHeapResponseCache {
+
+    private final Segment[] segments;
+    private final int maxEntryBytes;
+
+    public OffHeapResponseCache(long capacityBytes, int segmentCount, int blockSize, int maxEntryBytes) {
+        int count = Integer.highestOneBit(Math.max(1, segmentCount));
+        long segmentBytes = capacityBytes / count;
+        if (segmentBytes / blockSize > Integer.MAX_VALUE / blockSize) {
+            throw new IllegalArgumentException("segment is larger than 2GB, use more segments: " + segmentBytes);
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((int) (segmentBytes / blockSize), blockSize);
+        }
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * @return 같은 데이터 버전으로 저장된 응답, 없으면 null
+     */
+    public CachedResponse get(String key, long version) {
+        int hash = spread(key.hashCode());
+        return segmentFor(hash).get(key, hash, version);
+    }
+
+    /**
+     * @return 저장했으면 true. 너무 크거나 자리를 내줄 항목보다 덜 조회된 키면 false
+     */
+    public boolean put(String key, long version, String contentType, String etag, byte[] body) {
+        if (body.length > maxEntryBytes) {
+            return false;
+        }
+        int hash = spread(key.hashCode());
+        return segmentFor(hash).put(key, hash, new CachedResponse(contentType, etag, body), version);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public long usedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.usedBytes();
+        }
+        return used;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 16) & (segments.length - 1)];
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+
+    @Getter
+    public static final class CachedResponse {
+
+        private final String contentType;
+        private final String etag;
+        private final byte[] body;
+
+        public CachedResponse(String contentType, String etag, byte[] body) {
+            this.contentType = contentType;
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    private static final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer slab;
+        private final int blockSize;
+        private final int[] freeBlocks;
+        private int freeCount;
+        // accessOrder = true: 순회 순서가 가장 오래 안 쓰인 항목부터
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private final FrequencySketch sketch;
+
+        Segment(int blocks, int blockSize) {
+            this.slab = ByteBuffer.allocateDirect(blocks * blockSize);
+            this.blockSize = blockSize;
+            this.freeBlocks = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                freeBlocks[i] = blocks - 1 - i;
+            }
+            this.freeCount = blocks;
+            this.sketch = new FrequencySketch(blocks);
+        }
+
+        CachedResponse get(String key, int hash, long version) {
+            lock.lock();
+            try {
+                sketch.increment(hash);
+                Entry entry = entries.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.version != version) {
+                    entries.remove(key);
+                    release(entry);
+                    return null;
+                }
+                return new CachedResponse(entry.contentType, entry.etag, read(entry));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean put(String key, int hash, CachedResponse response, long version) {
+            int needed = (response.getBody().length + blockSize - 1) / blockSize;
+            lock.lock();
+            try {
+                Entry previous = entries.remove(key);
+                if (previous != null) {
+                    release(previous);
+                }
+                if (freeCount < needed && !makeRoom(hash, needed, version)) {
+                    return false;
+                }
+
+                int[] blocks = new int[needed];
+                for (int i = 0; i < needed; i++) {
+                    blocks[i] = freeBlocks[--freeCount];
+                }
+                Entry entry = new Entry(hash, version, response.getContentType(), response.getEtag(), blocks, response.getBody().length);
+                write(entry, response.getBody());
+                entries.put(key, entry);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean makeRoom(int hash, int needed, long version) {
+            // 버전이 지난 항목은 다시 쓰일 일이 없으므로 빈도와 상관없이 비운다.
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (freeCount < needed && iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.version != version) {
+                    iterator.remove();
+                    release(entry);
+                }
+            }
+
+            int frequency = sketch.frequency(hash);
+            iterator = entries.values().iterator();
+            while (freeCount < needed && iterator.hasNext()) {
+                Entry victim = iterator.next();
+                if (frequency <= sketch.frequency(victim.hash)) {
+                    return false;
+                }
+                iterator.remove();
+                release(victim);
+            }
+            return freeCount >= needed;
+        }
+
+        private void release(Entry entry) {
+            for (int block : entry.blocks) {
+                freeBlocks[freeCount++] = block;
+            }
+        }
+
+        private void write(Entry entry, byte[] body) {
+            int offset = 0;
+            for (int block : entry.blocks) {
+                int length = Math.min(blockSize, body.length - offset);
+                slab.position(block * blockSize);
+                slab.put(body, offset, length);
+                offset += length;
+            }
+        }
+
+        private byte[] read(Entry entry) {
+            byte[] body = new byte[entry.length];
+            int offset = 0;
+            for (int block : entry.blocks) {
+                int length = Math.min(blockSize, entry.length - offset);
+                slab.position(block * blockSize);
+                slab.get(body, offset, length);
+                offset += length;
+            }
+            return body;
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                for (Entry entry : entries.values()) {
+                    release(entry);
+                }
+                entries.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long usedBytes() {
+            lock.lock();
+            try {
+                return (long) (freeBlocks.length - freeCount) * blockSize;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final int hash;
+        private final long version;
+        private final String contentType;
+        private final String etag;
+        private final int[] blocks;
+        private final int length;
+
+        Entry(int hash, long version, String contentType, String etag, int[] blocks, int length) {
+            this.hash = hash;
+            this.version = version;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.blocks = blocks;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 키별 최근 조회 빈도를 근사하는 count-min 스케치 (카운터 최대 15).
+     * 증가 횟수가 표 크기의 10배가 되면 모든 카운터를 절반으로 줄여 오래된 인기를 잊는다.
+     */
+    private static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97CB3127, 0xB2E7D1A5, 0x6C8E9CF5, 0x2F4A7C15};
+
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int size = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+            this.table = new byte[size];
+            this.mask = size - 1;
+            this.sampleSize = size * 10;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int seed : SEEDS) {
+                int index = index(hash, seed);
+                if (table[index] < 15) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (byte) (table[i] >>> 1);
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int seed : SEEDS) {
+                frequency = Math.min(frequency, table[index(hash, seed)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int seed) {
+            int h = (hash ^ seed) * 0x85EBCA6B;
+            h ^= h >>> 13;
+            return h & mask;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.teddy.study.querydsl.cache;
+
+import com.teddy.study.querydsl.config.PrefetchProperties;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.dto.MemberTeamDto;
+import com.teddy.study.querydsl.repository.MemberRepository;
+import com.teddy.study.querydsl.support.AdaptiveConcurrencyLimit;
+import com.teddy.study.querydsl.support.ConcurrencyLimits;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import com.teddy.study.querydsl.support.SearchKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * /v3/members 를 page=0,1,2... 순서로 읽는 클라이언트를 위해, 페이지 N 을 응답할 때 N+1 을 미리 읽어 둔다.
+ *
+ * searchPageComplex 는 정렬 없이 offset 으로 자르므로 keyset 으로 이어 읽을 기준이 없다.
+ * 그래서 클라이언트가 보낼 다음 요청과 똑같은 offset 조회를 미리 실행하고, 데이터 버전이 같을 때만 그 결과를 돌려준다.
+ * 미리 읽기도 /v3/members 의 동시 실행 한도를 하나 차지하고, 한도가 차 있으면 미리 읽지 않는다.
+ */
+@Slf4j
+@Component
+public class PagePrefetcher {
+
+    private final MemberRepository memberRepository;
+    private final DataVersionTracker dataVersionTracker;
+    private final PrefetchProperties properties;
+
+    private static final String ENDPOINT = "/v3/members";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // 만든 순서 = 만료 순서 (ttl 이 모두 같다). 가져간 항목은 앞으로 오면 버린다.
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final Map<String, AtomicInteger> budgets = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final AdaptiveConcurrencyLimit limit;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter wasted;
+    private final Counter skipped;
+
+    public PagePrefetcher(MemberRepository memberRepository, DataVersionTracker dataVersionTracker,
+                          PrefetchProperties properties, ConcurrencyLimits concurrencyLimits, MeterRegistry meterRegistry) {
+        this.memberRepository = memberRepository;
+        this.dataVersionTracker = dataVersionTracker;
+        this.properties = properties;
+        this.limit = concurrencyLimits.get(ENDPOINT);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("page-prefetch-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.wasted = counter(meterRegistry, "wasted");
+        this.skipped = counter(meterRegistry, "skipped");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("member.search.prefetch")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 미리 읽어 둔 페이지가 있으면 그것을, 없으면 직접 조회한 페이지를 돌려주고 다음 페이지를 미리 읽는다.
+     * clientId 가 없으면(헤더 미전송) 미리 읽지 않는다.
+     */
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, String clientId) {
+        if (!properties.isEnabled() || !StringUtils.hasText(clientId) || pageable.isUnpaged()) {
+            return memberRepository.searchPageComplex(condition, pageable);
+        }
+
+        // 조회 전에 버전을 읽어야, 조회 중에 쓰기가 끼어들면 이 결과로 만든 항목이 다음 요청에서 버려진다.
+        long version = dataVersionTracker.current();
+        Page<MemberTeamDto> page = take(SearchKey.of(condition, pageable), version);
+        if (page != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            page = memberRepository.searchPageComplex(condition, pageable);
+        }
+
+        if (page.hasNext()) {
+            prefetch(condition, pageable.next(), clientId, version);
+        }
+        return page;
+    }
+
+    private Page<MemberTeamDto> take(String key, long version) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.release();
+        if (entry.version != version || entry.isExpired(System.nanoTime())) {
+            wasted.increment();
+            return null;
+        }
+        // 아직 읽는 중이면 같은 조회를 또 보내지 않고 잠깐 기다린다. 늦으면 직접 조회한다.
+        try {
+            return entry.page.get(properties.getAwaitTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            wasted.increment();
+            return null;
+        } catch (ExecutionException e) {
+            log.debug("prefetch failed for {}", key, e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void prefetch(MemberSearchCondition condition, Pageable next, String clientId, long version) {
+        String key = SearchKey.of(condition, next);
+        removeExpired();
+        if (entries.containsKey(key)) {
+            return;
+        }
+
+        AtomicInteger budget = budgets.computeIfAbsent(clientId, id -> new AtomicInteger());
+        if (budget.incrementAndGet() > properties.getPerClientBudget()) {
+            budget.decrementAndGet();
+            // 더 이상 잡고 있는 페이지가 없는 클라이언트는 잊고 다시 본다.
+            budgets.values().removeIf(held -> held.get() <= 0);
+            budget = budgets.computeIfAbsent(clientId, id -> new AtomicInteger());
+            if (budget.incrementAndGet() > properties.getPerClientBudget()) {
+                budget.decrementAndGet();
+                skipped.increment();
+                return;
+            }
+        }
+
+        // 요청과 같은 한도를 쓴다. 한도가 차 있으면 미리 읽지 않는다.
+        if (limit != null && !limit.tryAcquire(false)) {
+            budget.decrementAndGet();
+            skipped.increment();
+            return;
+        }
+
+        Entry entry = new Entry(key, version, System.nanoTime() + properties.getTtl().toNanos(), budget);
+        if (entries.putIfAbsent(key, entry) != null) {
+            entry.release();
+            releaseLimit(0, false);
+            return;
+        }
+        order.add(entry);
+        evictIfFull();
+
+        try {
+            executor.execute(new PrefetchTask(entry, condition, next));
+        } catch (RejectedExecutionException e) {
+            // 큐가 가득 찼거나 종료 중이면 미리 읽기를 포기한다. (요청 처리에는 영향 없음)
+            discard(entry);
+            entry.page.cancel(false);
+            releaseLimit(0, false);
+            skipped.increment();
+        }
+    }
+
+    private void releaseLimit(long elapsedNanos, boolean failed) {
+        if (limit != null) {
+            limit.release(false, elapsedNanos, failed);
+        }
+    }
+
+    // 가장 먼저 만료될 항목부터 버린다.
+    private void evictIfFull() {
+        while (entries.size() > properties.getMaxEntries()) {
+            Entry oldest = order.poll();
+            if (oldest == null) {
+                return;
+            }
+            if (discard(oldest)) {
+                wasted.increment();
+            }
+        }
+    }
+
+    // 앞에서부터 만료됐거나 이미 가져간 항목만 걷어 낸다. (만료 순서로 쌓이므로 전체를 훑지 않는다)
+    private void removeExpired() {
+        long now = System.nanoTime();
+        Entry head;
+        while ((head = order.peek()) != null && (head.isExpired(now) || entries.get(head.key) != head)) {
+            if (order.remove(head) && discard(head)) {
+                wasted.increment();
+            }
+        }
+    }
+
+    private boolean discard(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            entry.release();
+            return true;
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 실행되지 못한 미리 읽기는 취소해서, 기다리던 요청이 바로 직접 조회로 넘어가게 한다.
+        for (Runnable task : executor.shutdownNow()) {
+            ((PrefetchTask) task).entry.page.cancel(false);
+        }
+        entries.values().forEach(entry -> entry.page.cancel(false));
+        entries.clear();
+        order.clear();
+    }
+
+    private class PrefetchTask implements Runnable {
+
+        private final Entry entry;
+        private final MemberSearchCondition condition;
+        private final Pageable pageable;
+
+        PrefetchTask(Entry entry, MemberSearchCondition condition, Pageable pageable) {
+            this.entry = entry;
+            this.condition = condition;
+            this.pageable = pageable;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                entry.page.complete(memberRepository.searchPageComplex(condition, pageable));
+            } catch (RuntimeException e) {
+                failed = true;
+                entry.page.completeExceptionally(e);
+            } finally {
+                // 종료 중 인터럽트 등으로 끝나지 못했으면 기다리는 요청이 없게 취소한다.
+                entry.page.cancel(false);
+                releaseLimit(System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final String key;
+        private final long version;
+        private final long expiresAt;
+        private final AtomicInteger budget;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final CompletableFuture<Page<MemberTeamDto>> page = new CompletableFuture<>();
+
+        Entry(String key, long version, long expiresAt, AtomicInteger budget) {
+            this.key = key;
+            this.version = version;
+            this.expiresAt = expiresAt;
+            this.budget = budget;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+
+        // 가져가거나 버려질 때 한 번만 클라이언트 몫을 돌려준다.
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                budget.decrementAndGet();
+            }
+        }
+    }
+}
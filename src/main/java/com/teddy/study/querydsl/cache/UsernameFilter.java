@@ -0,0 +1,231 @@
+package com.teddy.study.querydsl.cache;
+
+import com.teddy.study.querydsl.config.UsernameFilterProperties;
+import com.teddy.study.querydsl.support.FlushScope;
+import com.teddy.study.querydsl.support.TableWriteInspector;
+import com.teddy.study.querydsl.support.TableWriteListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Member.username 존재 여부를 DB 조회 없이 걸러내는 {@link UsernameBloomFilter} 를 관리한다.
+ *
+ * - 기동 시 StartupPipeline 이 전체 username 으로 만든다.
+ * - 엔티티 insert / update 는 {@link MemberUsernameListener} 가 새 username 을 바로 추가한다. (이전 이름은 오탐만 늘린다)
+ * - username 에 값을 넣는 벌크 쓰기(update ... set username, insert-select)는 어떤 username 이 생겼는지 알 수 없으므로
+ *   필터를 무효로 표시하고, 다음 재구성 전까지는 모든 조회를 DB 로 보낸다. username 을 건드리지 않는 벌크 쓰기는 무시한다.
+ * - 삭제는 오탐만 늘리므로 rebuild-interval 마다 새로 만든다.
+ */
+@Slf4j
+@Component
+public class UsernameFilter implements TableWriteListener {
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTransaction;
+    private final UsernameFilterProperties properties;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    // 재구성 중에 들어온 username 은 새 필터에도 넣는다.
+    private final AtomicReference<UsernameBloomFilter> building = new AtomicReference<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    // 기동 파이프라인, 주기적 재구성, 테스트가 동시에 부르면 차례로 만든다.
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private final Counter negatives;
+    private final Counter truePositives;
+    private final Counter falsePositives;
+    private final Counter bypassed;
+
+    public UsernameFilter(EntityManager em, PlatformTransactionManager transactionManager,
+                          UsernameFilterProperties properties, MeterRegistry meterRegistry) {
+        this.em = em;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = properties;
+
+        this.negatives = lookups(meterRegistry, "negative");
+        this.truePositives = lookups(meterRegistry, "true-positive");
+        this.falsePositives = lookups(meterRegistry, "false-positive");
+        this.bypassed = lookups(meterRegistry, "bypassed");
+
+        // 실제로 없는 username 조회 중 필터가 걸러내지 못한 비율
+        Gauge.builder("member.username.filter.false-positive.ratio", this, UsernameFilter::observedFalsePositiveRate)
+                .register(meterRegistry);
+        Gauge.builder("member.username.filter.false-positive.expected", this, UsernameFilter::expectedFalsePositiveRate)
+                .register(meterRegistry);
+        FunctionCounter.builder("member.username.filter.invalidations", invalidations, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("member.username.filter.lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * false 면 그 username 을 가진 회원은 확실히 없다. 필터를 쓸 수 없는 상태면 true.
+     */
+    public boolean mightContain(String username) {
+        Snapshot snapshot = usableSnapshot();
+        if (snapshot == null) {
+            bypassed.increment();
+            return true;
+        }
+        boolean maybe = snapshot.filter.mightContain(username);
+        if (!maybe) {
+            negatives.increment();
+        }
+        return maybe;
+    }
+
+    /**
+     * mightContain 이 true 였던 조회의 실제 결과를 기록한다. (오탐률 측정용)
+     */
+    public void recordLookup(boolean found) {
+        if (usableSnapshot() == null) {
+            return;
+        }
+        (found ? truePositives : falsePositives).increment();
+    }
+
+    public boolean isUsable() {
+        return usableSnapshot() != null;
+    }
+
+    private Snapshot usableSnapshot() {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Snapshot snapshot = current.get();
+        return snapshot != null && snapshot.builtFrom == invalidations.get() ? snapshot : null;
+    }
+
+    public void add(String username) {
+        if (username == null) {
+            return;
+        }
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            snapshot.filter.put(username);
+        }
+        UsernameBloomFilter next = building.get();
+        if (next != null) {
+            next.put(username);
+        }
+    }
+
+    @Override
+    public void onWrite(String table, String sql) {
+        // flush 중의 쓰기는 엔티티 insert / update 로, 리스너가 이미 반영했다.
+        if (!"member".equals(table) || FlushScope.inFlush() || TableWriteInspector.isSingleRowInsert(sql)
+                || !TableWriteInspector.assignsColumn(sql, "username")) {
+            return;
+        }
+        invalidate();
+        // 커밋 전에 시작한 재구성은 이 변경을 못 볼 수 있으므로 트랜잭션이 끝날 때 한 번 더 무효화한다.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidations.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * 다음 재구성 전까지 쓰지 않는다. (다른 노드의 member 쓰기 등)
+     */
+    public void invalidate() {
+        invalidations.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.username-filter.check-interval-ms:30000}")
+    public void refresh() {
+        Snapshot snapshot = current.get();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (snapshot == null || !isUsable()
+                || System.nanoTime() - snapshot.builtAt > properties.getRebuildInterval().toNanos()) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            long builtFrom = invalidations.get();
+            long builtAt = System.nanoTime();
+            Long count = readOnlyTransaction.execute(status ->
+                    em.createQuery("select count(m) from Member m", Long.class).getSingleResult());
+            UsernameBloomFilter filter = UsernameBloomFilter.create(
+                    (long) (count * properties.getHeadroom()) + 1024, properties.getFalsePositiveRate());
+            building.set(filter);
+
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> usernames = em.createQuery("select m.username from Member m", String.class)
+                        .setHint("org.hibernate.fetchSize", 1000)
+                        .getResultStream()) {
+                    usernames.forEach(username -> {
+                        if (username != null) {
+                            filter.put(username);
+                        }
+                    });
+                }
+            });
+
+            current.set(new Snapshot(filter, builtFrom, builtAt));
+            log.info("username filter rebuilt: members={}, capacity={}, usable={}", count, filter.capacity(), isUsable());
+        } catch (RuntimeException e) {
+            log.warn("username filter rebuild failed", e);
+        } finally {
+            building.set(null);
+            rebuildLock.unlock();
+        }
+    }
+
+    private double observedFalsePositiveRate() {
+        double fp = falsePositives.count();
+        double absent = fp + negatives.count();
+        return absent == 0 ? 0 : fp / absent;
+    }
+
+    private double expectedFalsePositiveRate() {
+        Snapshot snapshot = current.get();
+        return snapshot == null ? 0 : snapshot.filter.expectedFalsePositiveRate();
+    }
+
+    private static class Snapshot {
+
+        private final UsernameBloomFilter filter;
+        // 이 값이 invalidations 와 같을 때만 필터를 믿는다.
+        private final long builtFrom;
+        private final long builtAt;
+
+        Snapshot(UsernameBloomFilter filter, long builtFrom, long builtAt) {
+            this.filter = filter;
+            this.builtFrom = builtFrom;
+            this.builtAt = builtAt;
+        }
+    }
+}
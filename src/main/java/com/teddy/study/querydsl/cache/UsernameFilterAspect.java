@@ -0,0 +1,41 @@
+package com.teddy.study.querydsl.cache;
+
+import com.teddy.study.querydsl.support.PendingChanges;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * username 단건 조회에서 필터가 "확실히 없음" 이라고 하면 DB 에 가지 않고 빈 결과를 돌려준다.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class UsernameFilterAspect {
+
+    private final UsernameFilter usernameFilter;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Around("execution(java.util.List com.teddy.study.querydsl.repository.MemberRepository.findByUsername(String))"
+            + " || execution(java.util.List com.teddy.study.querydsl.repository.MemberJpaRepository.findByUsername*(String))")
+    public Object filterUsername(ProceedingJoinPoint joinPoint) throws Throwable {
+        String username = (String) joinPoint.getArgs()[0];
+        // 아직 flush 되지 않은 저장 / 이름 변경은 필터에 없으므로 DB 로 보낸다. (조회 전 자동 flush)
+        if (username == null || PendingChanges.possible(entityManagerFactory)) {
+            return joinPoint.proceed();
+        }
+        if (!usernameFilter.mightContain(username)) {
+            return new ArrayList<>();
+        }
+
+        Object result = joinPoint.proceed();
+        usernameFilter.recordLookup(!((List<?>) result).isEmpty());
+        return result;
+    }
+}
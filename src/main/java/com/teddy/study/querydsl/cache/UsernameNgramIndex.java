@@ -0,0 +1,314 @@
+package com.teddy.study.querydsl.cache;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.teddy.study.querydsl.config.UsernameIndexProperties;
+import com.teddy.study.querydsl.support.FlushScope;
+import com.teddy.study.querydsl.support.TableWriteInspector;
+import com.teddy.study.querydsl.support.TableWriteListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static com.teddy.study.querydsl.entity.QMember.member;
+
+/**
+ * Member.username 의 trigram 역색인. startsWith / contains 검색의 후보 member_id 를 좁혀 like 전체 스캔을 피한다.
+ *
+ * - 포스팅 리스트는 trigram 별로 정렬된 long[] 이다. 앞에 시작 표시 문자를 붙여 색인하므로 접두어 검색도 같은 색인을 쓴다.
+ * - 재구성 이후 저장된 회원은 pending 에 쌓았다가 조회 때 직접 비교한다.
+ * - 후보는 항상 like 조건과 함께 쓰므로, 삭제되었거나 이름이 바뀐 회원이 색인에 남아 있어도 결과는 정확하다.
+ * - 엔티티 저장 / 이름 변경은 MemberUsernameListener 가 pending 에 넣는다.
+ *   색인에 없는 username 을 만들 수 있는 벌크 쓰기 (username 을 쓰는 insert / update) 만 재구성 전까지 색인을 끈다.
+ */
+@Slf4j
+@Component
+public class UsernameNgramIndex implements TableWriteListener {
+
+    private static final char START = '\u0002';
+    private static final int GRAM = 3;
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTransaction;
+    private final UsernameIndexProperties properties;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    // 재구성 중에 저장된 회원은 새 스냅샷의 pending 에도 넣는다.
+    private final AtomicReference<Snapshot> building = new AtomicReference<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    // 기동 파이프라인, 주기적 재구성, 테스트가 동시에 부르면 차례로 만든다.
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public UsernameNgramIndex(EntityManager em, PlatformTransactionManager transactionManager,
+                              UsernameIndexProperties properties) {
+        this.em = em;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = properties;
+    }
+
+    public BooleanExpression usernameStartsWith(String prefix) {
+        if (!StringUtils.hasText(prefix)) {
+            return null;
+        }
+        return withCandidates(member.username.startsWith(prefix), candidates(START + prefix, true, prefix));
+    }
+
+    public BooleanExpression usernameContains(String text) {
+        if (!StringUtils.hasText(text)) {
+            return null;
+        }
+        return withCandidates(member.username.contains(text), candidates(text, false, text));
+    }
+
+    private BooleanExpression withCandidates(BooleanExpression like, long[] candidates) {
+        if (candidates == null) {
+            return like;
+        }
+        List<Long> ids = new ArrayList<>(candidates.length);
+        for (long id : candidates) {
+            ids.add(id);
+        }
+        // 후보가 없으면 in () 은 항상 거짓으로 번역된다.
+        return member.id.in(ids).and(like);
+    }
+
+    /**
+     * 후보 member_id (정렬됨) 를 돌려준다. 색인을 쓸 수 없거나 후보가 너무 많으면 null.
+     */
+    long[] candidates(String indexed, boolean prefix, String text) {
+        Snapshot snapshot = usableSnapshot();
+        if (snapshot == null || indexed.length() < GRAM) {
+            return null;
+        }
+
+        long[] result = null;
+        for (long gram : grams(indexed)) {
+            long[] postings = snapshot.postings.get(gram);
+            if (postings == null) {
+                result = new long[0];
+                break;
+            }
+            result = result == null ? postings : intersect(result, postings);
+            if (result.length == 0) {
+                break;
+            }
+        }
+
+        long[] pending = snapshot.pendingMatches(prefix, text);
+        if (pending.length > 0) {
+            result = union(result, pending);
+        }
+        return result.length > properties.getMaxCandidates() ? null : result;
+    }
+
+    public void add(Long id, String username) {
+        if (id == null || username == null) {
+            return;
+        }
+        Pending entry = new Pending(id, username);
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            snapshot.add(entry);
+        }
+        Snapshot next = building.get();
+        if (next != null) {
+            next.add(entry);
+        }
+    }
+
+    public boolean isUsable() {
+        return usableSnapshot() != null;
+    }
+
+    private Snapshot usableSnapshot() {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Snapshot snapshot = current.get();
+        return snapshot != null && snapshot.builtFrom == invalidations.get() ? snapshot : null;
+    }
+
+    @Override
+    public void onWrite(String table, String sql) {
+        if (!"member".equals(table) || FlushScope.inFlush() || TableWriteInspector.isSingleRowInsert(sql)
+                || !TableWriteInspector.assignsColumn(sql, "username")) {
+            return;
+        }
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidations.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * 다음 재구성 전까지 쓰지 않는다. (다른 노드의 member 쓰기 등)
+     */
+    public void invalidate() {
+        invalidations.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.username-index.check-interval-ms:30000}")
+    public void refresh() {
+        Snapshot snapshot = current.get();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (snapshot == null || !isUsable()
+                || snapshot.pendingCount.get() > properties.getMaxPending()
+                || System.nanoTime() - snapshot.builtAt > properties.getRebuildInterval().toNanos()) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            long builtFrom = invalidations.get();
+            Snapshot next = new Snapshot(builtFrom, System.nanoTime());
+            building.set(next);
+
+            Map<Long, LongList> lists = new HashMap<>();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                // id 순으로 읽으면 포스팅 리스트가 정렬된 상태로 쌓인다.
+                try (Stream<Object[]> rows = em.createQuery(
+                                "select m.id, m.username from Member m where m.username is not null order by m.id", Object[].class)
+                        .setHint("org.hibernate.fetchSize", 1000)
+                        .getResultStream()) {
+                    rows.forEach(row -> {
+                        long id = (Long) row[0];
+                        for (long gram : grams(START + (String) row[1])) {
+                            LongList list = lists.computeIfAbsent(gram, g -> new LongList());
+                            // 같은 이름에 같은 trigram 이 여러 번 나오면 한 번만
+                            if (list.size == 0 || list.values[list.size - 1] != id) {
+                                list.add(id);
+                            }
+                        }
+                    });
+                }
+            });
+
+            lists.forEach((gram, list) -> next.postings.put(gram, list.toArray()));
+            current.set(next);
+            log.info("username index rebuilt: trigrams={}, usable={}", next.postings.size(), isUsable());
+        } catch (RuntimeException e) {
+            log.warn("username index rebuild failed", e);
+        } finally {
+            building.set(null);
+            rebuildLock.unlock();
+        }
+    }
+
+    // trigram 세 글자를 long 하나로 묶는다.
+    private static long[] grams(String text) {
+        int count = Math.max(0, text.length() - GRAM + 1);
+        long[] grams = new long[count];
+        for (int i = 0; i < count; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return grams;
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long[] union(long[] sorted, long[] extra) {
+        long[] out = Arrays.copyOf(sorted == null ? new long[0] : sorted, (sorted == null ? 0 : sorted.length) + extra.length);
+        System.arraycopy(extra, 0, out, out.length - extra.length, extra.length);
+        Arrays.sort(out);
+        return Arrays.stream(out).distinct().toArray();
+    }
+
+    private static class Snapshot {
+
+        private final Map<Long, long[]> postings = new HashMap<>();
+        private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final long builtFrom;
+        private final long builtAt;
+
+        Snapshot(long builtFrom, long builtAt) {
+            this.builtFrom = builtFrom;
+            this.builtAt = builtAt;
+        }
+
+        void add(Pending entry) {
+            pending.add(entry);
+            pendingCount.incrementAndGet();
+        }
+
+        long[] pendingMatches(boolean prefix, String text) {
+            return pending.stream()
+                    .filter(p -> prefix ? p.username.startsWith(text) : p.username.contains(text))
+                    .mapToLong(p -> p.id)
+                    .toArray();
+        }
+    }
+
+    private static class Pending {
+
+        private final long id;
+        private final String username;
+
+        Pending(long id, String username) {
+            this.id = id;
+            this.username = username;
+        }
+    }
+
+    private static class LongList {
+
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * /members/export 는 넣지 않는다. 응답 시간이 항상 latencyThreshold 를 넘어 한도만 줄이고,
+     * 동시 실행은 MemberExporter 의 공유 스레드 풀(querydsl.export.parallelism)이 이미 제한한다.
+     */
+    private List<String> endpoints = new ArrayList<>(List.of("/v1/members", "/v2/members", "/v3/members"));
+
+    private int initialLimit = 20;
+    private int minLimit = 2;
+    private int maxLimit = 200;
+
+    /**
+     * 이보다 오래 걸린 응답은 과부하 신호로 보고 한도를 줄인다.
+     */
+    private Duration latencyThreshold = Duration.ofMillis(200);
+
+    private double backoffRatio = 0.9;
+
+    /**
+     * 한도를 줄인 뒤 이 시간 동안은 느린 응답이 와도 다시 줄이지 않는다. (줄이기 전에 받은 요청들의 응답)
+     */
+    private Duration backoffWindow = Duration.ofSeconds(1);
+
+    /**
+     * 비싼 요청(조건 없는 /v1, 큰 페이지)이 쓸 수 있는 한도 비율
+     */
+    private double expensiveShare = 0.25;
+
+    /**
+     * 이보다 큰 size 요청은 비싼 요청으로 본다.
+     */
+    private int maxBoundedPageSize = 500;
+}
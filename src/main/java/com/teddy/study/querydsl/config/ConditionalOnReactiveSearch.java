@@ -0,0 +1,22 @@
+package com.teddy.study.querydsl.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * querydsl.reactive.enabled=true 이고 spring.datasource 가 H2 일 때만 /v5 (R2DBC) 빈들을 등록한다.
+ * 다른 DB 면 기동을 막지 않고 조용히 빠진다.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnProperty(prefix = "querydsl.reactive", name = "enabled", havingValue = "true")
+@ConditionalOnExpression("'${spring.datasource.url:}'.startsWith('jdbc:h2:')")
+public @interface ConditionalOnReactiveSearch {
+}
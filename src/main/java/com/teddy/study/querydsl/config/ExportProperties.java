@@ -0,0 +1,35 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.export")
+public class ExportProperties {
+
+    /**
+     * 동시에 읽는 구간 수. 구간마다 querydsl-pool 커넥션을 하나씩 잡으므로 풀 크기보다 작게 둔다.
+     */
+    private int parallelism = 4;
+
+    /**
+     * member_id 구간 하나에 담길 대략의 행 수 (ROW_COUNT_ESTIMATE 기준)
+     */
+    private int partitionRows = 50_000;
+
+    private int fetchSize = 1_000;
+
+    /**
+     * 순서대로 이어 쓸 때 먼저 끝난 구간을 메모리에 들고 있을 수 있는 최대 개수 (parallelism 의 배수)
+     */
+    private int bufferedPartitionsPerThread = 2;
+
+    /**
+     * 야간 전체 내보내기 위치. 날짜별 디렉터리 아래 구간마다 파일 하나씩 쓴다. (cron 과 함께 설정해야 동작)
+     */
+    private String directory;
+
+    private String cron = "-";
+}
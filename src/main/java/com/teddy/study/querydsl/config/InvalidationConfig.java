@@ -0,0 +1,57 @@
+package com.teddy.study.querydsl.config;
+
+import com.teddy.study.querydsl.cache.UsernameFilter;
+import com.teddy.study.querydsl.cache.UsernameNgramIndex;
+import com.teddy.study.querydsl.event.InvalidationBus;
+import com.teddy.study.querydsl.event.InvalidationListener;
+import com.teddy.study.querydsl.event.InvalidationPublisher;
+import com.teddy.study.querydsl.event.InvalidationTransport;
+import com.teddy.study.querydsl.event.LoopbackInvalidationTransport;
+import com.teddy.study.querydsl.event.MulticastInvalidationTransport;
+import com.teddy.study.querydsl.event.RemoteInvalidationHandler;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.stream.Collectors;
+
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.invalidation", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(InvalidationProperties.class)
+public class InvalidationConfig {
+
+    @Bean(destroyMethod = "close")
+    public InvalidationTransport invalidationTransport(InvalidationProperties properties) throws IOException {
+        if (properties.getTransport() == InvalidationProperties.Transport.LOOPBACK) {
+            LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport(properties.getPort());
+            properties.getPeers().forEach(transport::addPeer);
+            return transport;
+        }
+        return new MulticastInvalidationTransport(properties.getGroup(), properties.getPort(),
+                properties.getTimeToLive(), properties.getNetworkInterface());
+    }
+
+    @Bean
+    public RemoteInvalidationHandler remoteInvalidationHandler(DataVersionTracker dataVersionTracker,
+                                                               UsernameFilter usernameFilter,
+                                                               UsernameNgramIndex usernameIndex) {
+        return new RemoteInvalidationHandler(dataVersionTracker, usernameFilter, usernameIndex);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public InvalidationBus invalidationBus(InvalidationTransport invalidationTransport,
+                                           ObjectProvider<InvalidationListener> listeners,
+                                           InvalidationProperties properties) {
+        return new InvalidationBus(invalidationTransport, listeners.orderedStream().collect(Collectors.toList()),
+                properties.getCoalesceWindow(), properties.getAntiEntropyInterval());
+    }
+
+    @Bean
+    public InvalidationPublisher invalidationPublisher(InvalidationBus invalidationBus, DataVersionTracker dataVersionTracker) {
+        return new InvalidationPublisher(invalidationBus, dataVersionTracker);
+    }
+}
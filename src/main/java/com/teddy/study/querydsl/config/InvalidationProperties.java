@@ -0,0 +1,43 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.invalidation")
+public class InvalidationProperties {
+
+    /**
+     * 여러 인스턴스로 띄울 때만 켠다.
+     */
+    private boolean enabled = false;
+
+    private Transport transport = Transport.MULTICAST;
+
+    private String group = "239.255.42.99";
+    private int port = 45600;
+    private int timeToLive = 1;
+    /**
+     * 멀티캐스트에 쓸 네트워크 인터페이스 이름 (비우면 OS 기본값)
+     */
+    private String networkInterface;
+
+    /**
+     * loopback 전송에서 같은 호스트의 다른 노드들이 듣는 포트
+     */
+    private List<Integer> peers = new ArrayList<>();
+
+    private Duration coalesceWindow = Duration.ofMillis(2);
+    private Duration antiEntropyInterval = Duration.ofSeconds(1);
+
+    public enum Transport {
+        MULTICAST,
+        LOOPBACK
+    }
+}
@@ -0,0 +1,31 @@
+package com.teddy.study.querydsl.config;
+
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import com.teddy.study.querydsl.support.HibernateSessionListener;
+import com.teddy.study.querydsl.support.TableWriteInspector;
+import com.teddy.study.querydsl.support.TableWriteListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({UsernameFilterProperties.class, UsernameIndexProperties.class, OutboxProperties.class,
+        PredicateGuardProperties.class, ExportProperties.class})
+public class JpaConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer tableWriteInspectorCustomizer(DataVersionTracker dataVersionTracker,
+                                                                      ObjectProvider<TableWriteListener> tableWriteListeners) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new TableWriteInspector(dataVersionTracker, tableWriteListeners));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sessionListenerCustomizer() {
+        // JFR RepositoryCall 이벤트의 SQL 구간 측정, 벌크 쓰기 구분용 flush 구간 표시
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, HibernateSessionListener.class.getName());
+    }
+}
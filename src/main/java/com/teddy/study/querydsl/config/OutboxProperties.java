@@ -0,0 +1,25 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.outbox")
+public class OutboxProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 한 번에 구독자에게 전달할 변경 수
+     */
+    private int batchSize = 500;
+
+    /**
+     * 점유한 묶음을 전달하는 데 쓸 수 있는 시간. 넘기면 (인스턴스가 죽은 것으로 보고) 다른 인스턴스가 다시 점유한다.
+     */
+    private Duration claimTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,38 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.predicate-guard")
+public class PredicateGuardProperties {
+
+    /**
+     * and / or / not 중첩 깊이
+     */
+    private int maxDepth = 4;
+
+    /**
+     * 연산, 경로, 값(in 절의 값 하나하나 포함) 개수의 합
+     */
+    private int maxSize = 64;
+
+    private int maxPageSize = 100;
+
+    /**
+     * 조건으로 읽게 될 것으로 추정한 행 수가 이보다 많으면 실행하지 않는다.
+     */
+    private long maxEstimatedRows = 10_000;
+
+    /**
+     * 팀 하나(teamName, team.id 값 하나)가 차지하는 행 비율 추정치
+     */
+    private double teamSelectivity = 0.1;
+
+    /**
+     * username 접두사 검색 하나가 차지하는 행 비율 추정치
+     */
+    private double prefixSelectivity = 0.01;
+}
@@ -0,0 +1,39 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.prefetch")
+public class PrefetchProperties {
+
+    /**
+     * 켜져 있어도 X-Client-Id 헤더를 보낸 클라이언트의 /v3 요청만 미리 읽는다.
+     */
+    private boolean enabled = false;
+
+    /**
+     * 미리 읽은 페이지를 보관하는 시간. 순차로 읽는 클라이언트가 다음 페이지를 요청하기까지의 간격보다 길면 된다.
+     */
+    private Duration ttl = Duration.ofSeconds(30);
+
+    /**
+     * 아직 읽는 중인 페이지를 요청이 기다리는 최대 시간. 넘으면 직접 조회한다.
+     */
+    private Duration awaitTimeout = Duration.ofMillis(200);
+
+    private int maxEntries = 256;
+
+    /**
+     * 클라이언트 하나가 동시에 잡고 있을 수 있는 (읽는 중 + 아직 안 가져간) 페이지 수
+     */
+    private int perClientBudget = 2;
+
+    private int threads = 2;
+
+    private int queueCapacity = 64;
+}
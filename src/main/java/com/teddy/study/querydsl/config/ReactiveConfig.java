@@ -0,0 +1,59 @@
+package com.teddy.study.querydsl.config;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.StringUtils;
+
+@Configuration
+@EnableConfigurationProperties(ReactiveSearchProperties.class)
+@ConditionalOnReactiveSearch
+public class ReactiveConfig implements DisposableBean {
+
+    private static final String H2_JDBC_PREFIX = "jdbc:h2:";
+
+    private ConnectionPool connectionPool;
+
+    // ConnectionFactory 를 빈으로 노출하면 DataSourceAutoConfiguration 이 물러나 JPA 가 쓸 DataSource 가 없어지므로
+    // 풀은 DatabaseClient 안에만 둔다. (R2dbcAutoConfiguration 도 QuerydslApplication 에서 제외)
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(DataSourceProperties dataSourceProperties, ReactiveSearchProperties properties) {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith(H2_JDBC_PREFIX)) {
+            throw new IllegalStateException("querydsl.reactive requires an H2 datasource: " + url);
+        }
+
+        // mem / file 모드는 같은 JVM 안의 H2 엔진을 열기 때문에 JPA 와 같은 데이터베이스를 본다.
+        H2ConnectionConfiguration.Builder configuration = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_JDBC_PREFIX.length()));
+        if (StringUtils.hasText(dataSourceProperties.determineUsername())) {
+            configuration.username(dataSourceProperties.determineUsername());
+        }
+        if (StringUtils.hasText(dataSourceProperties.determinePassword())) {
+            configuration.password(dataSourceProperties.determinePassword());
+        }
+
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuration.build()))
+                .name("querydsl-r2dbc-pool")
+                .initialSize(properties.getInitialPoolSize())
+                .maxSize(properties.getMaxPoolSize())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .maxAcquireTime(properties.getAcquireTimeout())
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.reactive")
+public class ReactiveSearchProperties {
+
+    /**
+     * /v5/members (R2DBC) 조회. 접속 정보는 spring.datasource 의 H2 url / 계정을 그대로 쓴다. (H2 가 아니면 켜도 등록되지 않는다)
+     */
+    private boolean enabled = false;
+
+    private int initialPoolSize = 2;
+
+    /**
+     * 스트리밍 중인 요청은 끝날 때까지 커넥션 하나를 잡으므로 이 값이 곧 동시 스트림 수의 상한이다.
+     * H2 커넥션은 가벼운 세션이라 JDBC 풀(querydsl-pool) 보다 크게 잡는다.
+     */
+    private int maxPoolSize = 200;
+
+    private Duration maxIdleTime = Duration.ofMinutes(30);
+
+    /**
+     * 풀이 다 찼을 때 새 스트림이 커넥션을 기다리는 시간. 지나면 요청이 실패한다.
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 클라이언트가 가져가는 속도에 맞춰 DB 에서 한 번에 당겨 오는 행 수
+     */
+    private int batchSize = 64;
+}
@@ -0,0 +1,39 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.response-cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = false;
+
+    private List<String> endpoints = new ArrayList<>(List.of("/v1/members", "/v2/members", "/v3/members"));
+
+    /**
+     * 힙 밖(direct ByteBuffer)에 잡는 전체 크기. 세그먼트 수로 나눠 세그먼트마다 버퍼 하나씩 잡는다.
+     */
+    private DataSize capacity = DataSize.ofMegabytes(256);
+
+    /**
+     * 세그먼트마다 락, LRU 목록, 빈도 스케치가 따로 있다.
+     */
+    private int segments = 16;
+
+    /**
+     * 응답 본문은 이 크기의 블록 여러 개에 나눠 담는다.
+     */
+    private DataSize blockSize = DataSize.ofKilobytes(4);
+
+    /**
+     * 이보다 큰 응답은 캐시하지 않는다. (조건 없는 /v1 같은 큰 응답이 캐시를 통째로 밀어내지 않게)
+     */
+    private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+}
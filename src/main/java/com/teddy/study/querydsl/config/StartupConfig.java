@@ -0,0 +1,29 @@
+package com.teddy.study.querydsl.config;
+
+import com.teddy.study.querydsl.cache.UsernameFilter;
+import com.teddy.study.querydsl.cache.UsernameNgramIndex;
+import com.teddy.study.querydsl.contorller.StartupPipeline;
+import com.teddy.study.querydsl.event.EntityChangeCapture;
+import com.teddy.study.querydsl.event.InvalidationBus;
+import com.teddy.study.querydsl.event.OutboxDispatcher;
+import com.teddy.study.querydsl.repository.MemberExporter;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(StartupProperties.class)
+public class StartupConfig {
+
+    /**
+     * spring.main.lazy-initialization=true (fast-start 프로파일) 이어도 기동 시 만들어야 하는 빈.
+     * 엔티티 / SQL 리스너 등록, @Scheduled, 수신 스레드처럼 누가 찾기 전에 동작해야 하는 것들이다.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(StartupPipeline.class, UsernameFilter.class,
+                UsernameNgramIndex.class, EntityChangeCapture.class, OutboxDispatcher.class, InvalidationBus.class,
+                MemberExporter.class);
+    }
+}
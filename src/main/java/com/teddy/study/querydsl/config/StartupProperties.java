@@ -0,0 +1,21 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.startup")
+public class StartupProperties {
+
+    /**
+     * false 면 초기 데이터 적재와 워밍업이 끝난 뒤에 기동이 끝난다. (이전 동작)
+     */
+    private boolean async = true;
+
+    /**
+     * 워밍업 때 대표 검색을 몇 번씩 실행할지 (쿼리 플랜 캐시, JIT)
+     */
+    private int warmupQueries = 20;
+}
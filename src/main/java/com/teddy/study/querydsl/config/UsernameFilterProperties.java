@@ -0,0 +1,30 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.username-filter")
+public class UsernameFilterProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 목표 오탐률. 필터 크기는 (현재 회원 수 x headroom) 과 이 값으로 정한다.
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * 재구성 사이에 늘어날 회원 수를 감안한 여유 배수
+     */
+    private double headroom = 2.0;
+
+    /**
+     * 삭제된 username 을 걸러내기 위한 주기적 재구성 간격
+     */
+    private Duration rebuildInterval = Duration.ofHours(1);
+}
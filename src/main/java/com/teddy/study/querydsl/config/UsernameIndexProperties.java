@@ -0,0 +1,27 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.username-index")
+public class UsernameIndexProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 후보 id 가 이보다 많으면 in 절 대신 like 로만 검색한다.
+     */
+    private int maxCandidates = 1_000;
+
+    /**
+     * 마지막 재구성 이후 추가된 회원이 이만큼 쌓이면 다시 만든다. (추가분은 조회 때마다 선형으로 훑는다)
+     */
+    private int maxPending = 10_000;
+
+    private Duration rebuildInterval = Duration.ofHours(1);
+}
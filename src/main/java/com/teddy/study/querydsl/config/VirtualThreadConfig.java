@@ -0,0 +1,67 @@
+package com.teddy.study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * virtual 프로파일: Tomcat 요청과 @Async / MVC 비동기 작업을 가상 스레드에서 실행한다. JDK 21 이상에서만 동작.
+ * 빌드는 Java 11 기준이므로 가상 스레드 API 는 리플렉션으로 부른다.
+ *
+ * JDBC 드라이버(H2)는 synchronized 안에서 소켓 I/O 를 하므로 DB 대기 중인 가상 스레드는 캐리어 스레드를 고정(pin)한다.
+ * 동시에 고정될 수 있는 수는 커넥션을 잡은 스레드 수, 즉 풀 크기가 상한이므로
+ * 캐리어 수를 코어 수 + 풀 크기로 잡아 DB 대기 중에도 다른 요청이 진행되게 한다.
+ * 캐리어 수는 JVM 시작 인자 -Djdk.virtualThreadScheduler.parallelism 로 준다. (build.gradle 의 -Pjdk21)
+ * 이 프로젝트 코드는 synchronized 를 쓰지 않는다. (고정 여부는 -Djdk.tracePinnedThreads=short 로 확인)
+ */
+@Slf4j
+@Profile("virtual")
+@Configuration
+public class VirtualThreadConfig {
+
+    private static final String PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+
+    private final ExecutorService virtualThreadExecutor;
+
+    public VirtualThreadConfig(Environment environment) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int recommended = Runtime.getRuntime().availableProcessors() + poolSize;
+        Integer parallelism = Integer.getInteger(PARALLELISM);
+        if (parallelism == null || parallelism < recommended) {
+            log.warn("-D{}={} is below cores + pool size ({}); requests can stall while carriers are pinned by JDBC calls",
+                    PARALLELISM, parallelism == null ? "(cores)" : parallelism, recommended);
+        }
+        this.virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+        log.info("virtual threads enabled (carrier parallelism={})",
+                parallelism == null ? Runtime.getRuntime().availableProcessors() : parallelism);
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("virtual profile requires JDK 21+, running on " + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("could not create virtual thread executor", e);
+        }
+    }
+}
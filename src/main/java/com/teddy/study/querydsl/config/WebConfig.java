@@ -0,0 +1,87 @@
+package com.teddy.study.querydsl.config;
+
+import com.teddy.study.querydsl.cache.OffHeapResponseCache;
+import com.teddy.study.querydsl.contorller.ConcurrencyLimitInterceptor;
+import com.teddy.study.querydsl.contorller.MemberTeamColumnarHttpMessageConverter;
+import com.teddy.study.querydsl.contorller.ResponseCacheFilter;
+import com.teddy.study.querydsl.contorller.SearchCostEstimator;
+import com.teddy.study.querydsl.support.AdaptiveConcurrencyLimit;
+import com.teddy.study.querydsl.support.ConcurrencyLimits;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties({ConcurrencyLimitProperties.class, PrefetchProperties.class, ResponseCacheProperties.class})
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ConcurrencyLimitProperties concurrencyLimitProperties;
+    private final MeterRegistry meterRegistry;
+
+    public WebConfig(ConcurrencyLimitProperties concurrencyLimitProperties, MeterRegistry meterRegistry) {
+        this.concurrencyLimitProperties = concurrencyLimitProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Accept: application/x-member-columnar 일 때만 선택되도록 JSON 컨버터 뒤에 둔다.
+        converters.add(new MemberTeamColumnarHttpMessageConverter());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        ConcurrencyLimitProperties properties = concurrencyLimitProperties;
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(concurrencyLimits().asMap(),
+                        new SearchCostEstimator(properties.getMaxBoundedPageSize()), meterRegistry))
+                .addPathPatterns(properties.getEndpoints().toArray(new String[0]));
+    }
+
+    // 인터셉터와 PagePrefetcher 가 같은 한도를 쓴다.
+    @Bean
+    public ConcurrencyLimits concurrencyLimits() {
+        ConcurrencyLimitProperties properties = concurrencyLimitProperties;
+        Map<String, AdaptiveConcurrencyLimit> limits = new LinkedHashMap<>();
+        if (properties.isEnabled()) {
+            for (String endpoint : properties.getEndpoints()) {
+                limits.put(endpoint, new AdaptiveConcurrencyLimit(
+                        properties.getInitialLimit(), properties.getMinLimit(), properties.getMaxLimit(),
+                        properties.getLatencyThreshold().toNanos(), properties.getBackoffRatio(),
+                        properties.getBackoffWindow().toNanos(), properties.getExpensiveShare()));
+            }
+        }
+        return new ConcurrencyLimits(limits);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "querydsl.response-cache", name = "enabled", havingValue = "true")
+    public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(ResponseCacheProperties properties,
+                                                                           DataVersionTracker dataVersionTracker,
+                                                                           SpringDataWebProperties dataWebProperties) {
+        OffHeapResponseCache cache = new OffHeapResponseCache(properties.getCapacity().toBytes(), properties.getSegments(),
+                (int) properties.getBlockSize().toBytes(), (int) properties.getMaxEntrySize().toBytes());
+        ResponseCacheFilter filter = new ResponseCacheFilter(cache, dataVersionTracker, dataWebProperties,
+                new LinkedHashSet<>(properties.getEndpoints()), meterRegistry);
+
+        FilterRegistrationBean<ResponseCacheFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(properties.getEndpoints().toArray(new String[0]));
+        return registration;
+    }
+}
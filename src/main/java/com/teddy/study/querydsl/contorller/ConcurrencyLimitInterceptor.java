@@ -0,0 +1,101 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.support.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 엔드포인트별 {@link AdaptiveConcurrencyLimit} 를 넘는 요청은 503 으로 바로 돌려보낸다.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String LIMIT = ConcurrencyLimitInterceptor.class.getName() + ".limit";
+    private static final String START = ConcurrencyLimitInterceptor.class.getName() + ".start";
+    private static final String EXPENSIVE = ConcurrencyLimitInterceptor.class.getName() + ".expensive";
+
+    private final Map<String, AdaptiveConcurrencyLimit> limits;
+    private final SearchCostEstimator costEstimator;
+    private final Map<String, Counter> limitRejections;
+    private final Map<String, Counter> expensiveRejections;
+
+    public ConcurrencyLimitInterceptor(Map<String, AdaptiveConcurrencyLimit> limits,
+                                       SearchCostEstimator costEstimator, MeterRegistry meterRegistry) {
+        this.limits = limits;
+        this.costEstimator = costEstimator;
+        this.limitRejections = new HashMap<>();
+        this.expensiveRejections = new HashMap<>();
+
+        limits.forEach((endpoint, limit) -> {
+            Gauge.builder("member.search.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            Gauge.builder("member.search.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            limitRejections.put(endpoint, rejections(meterRegistry, endpoint, "limit"));
+            expensiveRejections.put(endpoint, rejections(meterRegistry, endpoint, "expensive"));
+        });
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String endpoint, String reason) {
+        return Counter.builder("member.search.concurrency.rejected")
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String endpoint = endpoint(request);
+        AdaptiveConcurrencyLimit limit = limits.get(endpoint);
+        if (limit == null) {
+            return true;
+        }
+
+        boolean expensive = costEstimator.isExpensive(request);
+        if (!limit.tryAcquire(expensive)) {
+            (expensive ? expensiveRejections : limitRejections).get(endpoint).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return false;
+        }
+
+        request.setAttribute(LIMIT, limit);
+        request.setAttribute(START, System.nanoTime());
+        request.setAttribute(EXPENSIVE, expensive);
+        return true;
+    }
+
+    // 핸들러 매핑과 인터셉터 패턴은 끝의 / 를 무시하므로(/v1/members/) 한도도 같은 엔드포인트로 찾는다.
+    private static String endpoint(HttpServletRequest request) {
+        String path = UrlPathHelper.defaultInstance.getLookupPathForRequest(request);
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(0, end);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AdaptiveConcurrencyLimit limit = (AdaptiveConcurrencyLimit) request.getAttribute(LIMIT);
+        if (limit == null) {
+            return;
+        }
+        request.removeAttribute(LIMIT);
+
+        long elapsed = System.nanoTime() - (Long) request.getAttribute(START);
+        boolean failed = ex != null || response.getStatus() >= 500;
+        limit.release((Boolean) request.getAttribute(EXPENSIVE), elapsed, failed);
+    }
+}
@@ -3,14 +3,30 @@ package com.teddy.study.querydsl.contorller;
 import com.teddy.study.querydsl.entity.Member;
 import com.teddy.study.querydsl.entity.Team;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
-import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
+/**
+ * local 프로파일 초기 데이터. {@link StartupPipeline} 이 기동 후에 부른다.
+ */
 @Profile("local")
 @Component
 @RequiredArgsConstructor
@@ -18,27 +34,144 @@ public class InitMember {
 
     private final InitMemberService initMemberService;
 
-    @PostConstruct
     public void init() {
         initMemberService.init();
     }
 
+    @Slf4j
     @Component
     static class InitMemberService {
+        // 이 단위로 커밋한다. (영속성 컨텍스트와 트랜잭션 동기화 객체가 계속 커지지 않게)
+        private static final int FLUSH_SIZE = 1_000;
+        // 스냅샷은 컬럼 이름으로 쓰고 읽는다. (테이블 컬럼 순서가 바뀌어도 맞게)
+        private static final String TEAM_COLUMNS = "team_id, name";
+        private static final String MEMBER_COLUMNS = "member_id, username, age, team_id, team_name";
+
         @PersistenceContext
         private EntityManager em;
 
-        @Transactional
+        private final TransactionTemplate transactionTemplate;
+        private final JdbcTemplate jdbcTemplate;
+
+        // 부하 테스트에서는 querydsl.init.member-count=100000 처럼 늘려서 쓴다.
+        @Value("${querydsl.init.member-count:100}")
+        private int memberCount;
+
+        @Value("${querydsl.init.team-count:2}")
+        private int teamCount;
+
+        // 지정하면 처음 적재한 데이터를 CSV 로 남겨 두고, 다음 기동부터는 insert 대신 CSV 를 읽는다.
+        @Value("${querydsl.init.snapshot-dir:}")
+        private String snapshotDir;
+
+        InitMemberService(PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate) {
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
         public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
+            Path snapshot = snapshotPath();
+            if (snapshot != null && Files.exists(snapshot.resolve("member.csv"))) {
+                restore(snapshot);
+                return;
+            }
+            seed();
+            if (snapshot != null) {
+                write(snapshot);
+            }
+        }
+
+        private void seed() {
+            Long[] teamIds = transactionTemplate.execute(status -> {
+                Long[] ids = new Long[teamCount];
+                for (int i = 0; i < teamCount; i++) {
+                    Team team = new Team(teamName(i));
+                    em.persist(team);
+                    ids[i] = team.getId();
+                }
+                return ids;
+            });
+
+            for (int from = 0; from < memberCount; from += FLUSH_SIZE) {
+                int start = from;
+                int end = Math.min(memberCount, from + FLUSH_SIZE);
+                transactionTemplate.executeWithoutResult(status -> {
+                    Team[] teams = new Team[teamCount];
+                    for (int t = 0; t < teamCount; t++) {
+                        teams[t] = em.getReference(Team.class, teamIds[t]);
+                    }
+                    for (int i = start; i < end; i++) {
+                        em.persist(new Member("member" + i, i % 100, teams[i % teamCount]));
+                    }
+                });
+            }
+        }
+
+        // 회원 / 팀 수가 다르면 다른 스냅샷
+        private Path snapshotPath() {
+            if (!StringUtils.hasText(snapshotDir)) {
+                return null;
+            }
+            return Paths.get(snapshotDir, "members-" + memberCount + "-teams-" + teamCount);
+        }
+
+        private void write(Path snapshot) {
+            try {
+                Files.createDirectories(snapshot);
+            } catch (IOException e) {
+                log.warn("could not create seed snapshot directory {}", snapshot, e);
+                return;
+            }
+            jdbcTemplate.queryForList("call csvwrite(?, 'select " + TEAM_COLUMNS + " from team')",
+                    snapshot.resolve("team.csv").toString());
+            jdbcTemplate.queryForList("call csvwrite(?, 'select " + MEMBER_COLUMNS + " from member')",
+                    snapshot.resolve("member.csv").toString());
+            log.info("seed snapshot written to {}", snapshot);
+        }
+
+        // 엔티티를 하나씩 저장하지 않으므로 수천 배 빠르다. 엔티티 리스너는 불리지 않지만,
+        // Hibernate 네이티브 쿼리로 실행하므로 벌크 쓰기로 보인다. (outbox BULK 기록, 데이터 버전 / 필터 / 색인 무효화)
+        private void restore(Path snapshot) {
+            Set<String> sequences = idSequences();
+            transactionTemplate.executeWithoutResult(status -> {
+                em.createNativeQuery("insert into team (" + TEAM_COLUMNS + ") select " + TEAM_COLUMNS + " from csvread(?1)")
+                        .setParameter(1, snapshot.resolve("team.csv").toString())
+                        .executeUpdate();
+                em.createNativeQuery("insert into member (" + MEMBER_COLUMNS + ") select " + MEMBER_COLUMNS + " from csvread(?1)")
+                        .setParameter(1, snapshot.resolve("member.csv").toString())
+                        .executeUpdate();
+            });
+            restartSequences(sequences);
+            log.info("seed snapshot restored from {}", snapshot);
+        }
+
+        // 이후 persist 가 스냅샷의 id 와 겹치지 않게 Team / Member 의 id 시퀀스를 옮긴다. (기동 직후, 아직 id 를 할당하기 전)
+        private void restartSequences(Set<String> sequences) {
+            Long maxId = jdbcTemplate.queryForObject(
+                    "select greatest(coalesce((select max(member_id) from member), 0),"
+                            + " coalesce((select max(team_id) from team), 0))", Long.class);
+            for (String sequence : sequences) {
+                jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (maxId + 1));
             }
         }
+
+        private Set<String> idSequences() {
+            SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+            Set<String> sequences = new LinkedHashSet<>();
+            for (Class<?> entity : new Class<?>[]{Team.class, Member.class}) {
+                IdentifierGenerator generator = sessionFactory.getMetamodel().entityPersister(entity).getIdentifierGenerator();
+                if (!(generator instanceof SequenceStyleGenerator)
+                        || !((SequenceStyleGenerator) generator).getDatabaseStructure().isPhysicalSequence()) {
+                    throw new IllegalStateException("snapshot restore requires a sequence id generator for " + entity.getSimpleName());
+                }
+                sequences.add(((SequenceStyleGenerator) generator).getDatabaseStructure().getName());
+            }
+            return sequences;
+        }
+
+        // teamA, teamB, ... teamZ, team26, team27 ...
+        static String teamName(int index) {
+            return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+        }
     }
 }
@@ -1,15 +1,38 @@
 package com.teddy.study.querydsl.contorller;
 
+import com.querydsl.core.types.Predicate;
+import com.teddy.study.querydsl.cache.PagePrefetcher;
 import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.dto.MemberTeamColumns;
 import com.teddy.study.querydsl.dto.MemberTeamDto;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.repository.MemberExporter;
 import com.teddy.study.querydsl.repository.MemberJpaRepository;
+import com.teddy.study.querydsl.repository.MemberPredicateQuery;
 import com.teddy.study.querydsl.repository.MemberRepository;
+import com.teddy.study.querydsl.repository.PredicateRejectedException;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import com.teddy.study.querydsl.support.SearchKey;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -18,20 +41,91 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final DataVersionTracker dataVersionTracker;
+    private final PagePrefetcher pagePrefetcher;
+    private final MemberPredicateQuery memberPredicateQuery;
+    private final MemberExporter memberExporter;
+    private final ContentNegotiationManager contentNegotiationManager;
 
+    private static final List<MediaType> SEARCH_RESPONSE_TYPES =
+            List.of(MediaType.APPLICATION_JSON, MemberTeamColumnarHttpMessageConverter.MEDIA_TYPE);
 
-    @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
+
+    @GetMapping(value = "/v1/members", produces = {MediaType.APPLICATION_JSON_VALUE, MemberTeamColumnarHttpMessageConverter.MEDIA_TYPE_VALUE})
+    public MemberTeamColumns searchMemberV1(MemberSearchCondition condition) {
         return memberJpaRepository.search(condition);
     }
 
-    @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
+    @GetMapping(value = "/v2/members", produces = {MediaType.APPLICATION_JSON_VALUE, MemberTeamColumnarHttpMessageConverter.MEDIA_TYPE_VALUE})
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable, NativeWebRequest webRequest) {
+        // 데이터가 바뀌지 않았으면 DB 조회 없이 304
+        if (webRequest.checkNotModified(searchETag(condition, pageable, webRequest))) {
+            return null;
+        }
         return memberRepository.searchPageSimple(condition, pageable);
     }
 
-    @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    @GetMapping(value = "/v3/members", produces = {MediaType.APPLICATION_JSON_VALUE, MemberTeamColumnarHttpMessageConverter.MEDIA_TYPE_VALUE})
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(defaultValue = "false") boolean estimateCount,
+                                              @RequestHeader(value = "X-Client-Id", required = false) String clientId,
+                                              NativeWebRequest webRequest) {
+        if (webRequest.checkNotModified(searchETag(condition, pageable, webRequest))) {
+            return null;
+        }
+        // estimateCount=true 면 큰 결과의 전체 건수를 추정값으로 (응답의 totalExact 로 구분)
+        if (estimateCount) {
+            return memberRepository.searchPageEstimated(condition, pageable);
+        }
+        // X-Client-Id 를 보낸 클라이언트는 다음 페이지를 미리 읽어 둔다. (querydsl.prefetch.enabled)
+        return pagePrefetcher.searchPageComplex(condition, pageable, clientId);
+    }
+
+    // username, teamName, team.id, id 는 eq / in, age 는 값 두 개면 between (MemberRepository#customize)
+    @GetMapping("/v4/members")
+    public Page<MemberTeamDto> searchMemberV4(@QuerydslPredicate(root = Member.class, bindings = MemberRepository.class) Predicate predicate,
+                                              Pageable pageable) {
+        try {
+            return memberPredicateQuery.findAll(predicate, pageable)
+                    .map(m -> new MemberTeamDto(m.getId(), m.getUsername(), m.getAge(), m.getTeamName()));
+        } catch (PredicateRejectedException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // 전체 회원을 member_id 순서의 NDJSON 으로. member_id 구간별로 병렬 조회 / 직렬화 (querydsl.export.parallelism)
+    @GetMapping("/members/export")
+    public void exportMembers(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        memberExporter.exportTo(response.getOutputStream());
+    }
+
+    private String searchETag(MemberSearchCondition condition, Pageable pageable, NativeWebRequest webRequest) {
+        // 버전을 조회 전에 읽어야, 조회 중에 쓰기가 끼어들어도 다음 요청에서 다시 조회된다.
+        long version = dataVersionTracker.current();
+        // JSON 과 컬럼 바이너리 응답, 추정 건수 응답이 같은 ETag 를 갖지 않도록 응답 타입과 estimateCount 도 키에 포함
+        String variant = responseType(webRequest) + ";" + webRequest.getParameter("estimateCount");
+        String key = DigestUtils.md5DigestAsHex((SearchKey.of(condition, pageable) + variant).getBytes(StandardCharsets.UTF_8));
+        return "\"" + version + "-" + key + "\"";
+    }
+
+    // 컨버터가 고를 응답 타입. Accept 문자열이 달라도 같은 타입으로 응답하면 같은 ETag 를 쓴다.
+    private MediaType responseType(NativeWebRequest webRequest) {
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(contentNegotiationManager.resolveMediaTypes(webRequest));
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType acceptedType : accepted) {
+            for (MediaType responseType : SEARCH_RESPONSE_TYPES) {
+                if (acceptedType.isCompatibleWith(responseType)) {
+                    return responseType;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
     }
 }
@@ -0,0 +1,34 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.config.ConditionalOnReactiveSearch;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.dto.MemberTeamDto;
+import com.teddy.study.querydsl.repository.MemberReactiveRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnReactiveSearch
+public class MemberReactiveController {
+
+    private final MemberReactiveRepository memberReactiveRepository;
+
+    // 한 줄에 회원 하나씩 (NDJSON) 흘려보낸다. 요청 스레드는 바로 반납되고, 클라이언트가 읽는 만큼만 DB 에서 당겨 온다.
+    // 스트림마다 끝날 때까지 커넥션 하나를 잡으므로 동시 스트림 수는 querydsl.reactive.max-pool-size 까지다.
+    @GetMapping(value = "/v5/members", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MemberTeamDto> searchMemberV5(MemberSearchCondition condition) {
+        return memberReactiveRepository.search(condition);
+    }
+
+    @GetMapping("/v5/members/page")
+    public Mono<Page<MemberTeamDto>> searchMemberV5Page(MemberSearchCondition condition, Pageable pageable) {
+        return memberReactiveRepository.searchPageComplex(condition, pageable);
+    }
+}
@@ -0,0 +1,193 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.dto.MemberTeamColumns;
+import com.teddy.study.querydsl.dto.MemberTeamDto;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code Page<MemberTeamDto>} / {@code List<MemberTeamDto>} 를 컬럼 단위 바이너리로 내려주는 컨버터.
+ *
+ * <pre>
+ * int    magic ('MTC2')
+ * int    page number (-1 = unpaged), int page size, long total elements, int row count
+ * byte[(row count + 7) / 8] memberId 존재 비트맵 (행 i 는 byte i/8 의 bit i%8, 0 = null)
+ * long[] memberId (null 인 행은 0)
+ * [int length (-1 = null), utf-8 bytes] username
+ * int[]  age
+ * int    dictionary size, [int length, utf-8 bytes] team names, int[] team code (-1 = null)
+ * </pre>
+ * 모든 정수는 big-endian. 필드 이름과 pageable/sort 메타데이터는 싣지 않는다.
+ */
+public class MemberTeamColumnarHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-member-columnar";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    private static final int MAGIC = 0x4D544332;
+
+    public MemberTeamColumnarHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Page.class.isAssignableFrom(clazz) || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (!canWrite(mediaType) || !supports(clazz)) {
+            return false;
+        }
+        if (type == null) {
+            return true;
+        }
+        Class<?> element = ResolvableType.forType(type).getGeneric(0).resolve();
+        return element == null || MemberTeamDto.class.isAssignableFrom(element);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("columnar format is write-only", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("columnar format is write-only", inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody(), 8192));
+
+        List<? extends MemberTeamDto> rows;
+        if (body instanceof Page) {
+            Page<? extends MemberTeamDto> page = (Page<? extends MemberTeamDto>) body;
+            rows = page.getContent();
+            out.writeInt(MAGIC);
+            out.writeInt(page.getPageable().isPaged() ? page.getNumber() : -1);
+            out.writeInt(page.getSize());
+            out.writeLong(page.getTotalElements());
+        } else {
+            rows = (List<? extends MemberTeamDto>) body;
+            out.writeInt(MAGIC);
+            out.writeInt(-1);
+            out.writeInt(rows.size());
+            out.writeLong(rows.size());
+        }
+        out.writeInt(rows.size());
+
+        if (rows instanceof MemberTeamColumns) {
+            writeColumns(out, (MemberTeamColumns) rows);
+            out.flush();
+            return;
+        }
+
+        byte[] present = new byte[(rows.size() + 7) / 8];
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).getMemberId() != null) {
+                present[i >>> 3] |= 1 << (i & 7);
+            }
+        }
+        out.write(present);
+        for (MemberTeamDto row : rows) {
+            out.writeLong(row.getMemberId() != null ? row.getMemberId() : 0L);
+        }
+        for (MemberTeamDto row : rows) {
+            writeString(out, row.getUsername());
+        }
+        for (MemberTeamDto row : rows) {
+            out.writeInt(row.getAge());
+        }
+        writeTeamNames(out, rows);
+
+        out.flush();
+    }
+
+    // 이미 컬럼으로 담긴 결과는 행 DTO 를 만들지 않고, 팀 이름 사전도 그대로 쓴다.
+    private void writeColumns(DataOutputStream out, MemberTeamColumns columns) throws IOException {
+        int size = columns.size();
+        // 컬럼 결과의 memberId 는 null 이 없다.
+        byte[] present = new byte[(size + 7) / 8];
+        Arrays.fill(present, (byte) 0xFF);
+        if ((size & 7) != 0) {
+            present[present.length - 1] = (byte) ((1 << (size & 7)) - 1);
+        }
+        out.write(present);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(columns.getMemberId(i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeString(out, columns.getUsername(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(columns.getAge(i));
+        }
+        String[] dictionary = columns.getTeamNames();
+        out.writeInt(dictionary.length);
+        for (String name : dictionary) {
+            writeString(out, name);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(columns.getTeamCode(i));
+        }
+    }
+
+    private void writeTeamNames(DataOutputStream out, List<? extends MemberTeamDto> rows) throws IOException {
+        // 팀 이름은 종류가 적으므로 사전 인코딩
+        Map<String, Integer> codes = new HashMap<>();
+        int[] rowCodes = new int[rows.size()];
+        for (int i = 0; i < rowCodes.length; i++) {
+            String teamName = rows.get(i).getTeamName();
+            rowCodes[i] = teamName == null ? -1 : codes.computeIfAbsent(teamName, name -> codes.size());
+        }
+
+        String[] dictionary = new String[codes.size()];
+        codes.forEach((name, code) -> dictionary[code] = name);
+        out.writeInt(dictionary.length);
+        for (String name : dictionary) {
+            writeString(out, name);
+        }
+        for (int code : rowCodes) {
+            out.writeInt(code);
+        }
+    }
+
+    private void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
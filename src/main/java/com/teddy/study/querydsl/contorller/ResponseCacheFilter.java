@@ -0,0 +1,275 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.cache.OffHeapResponseCache;
+import com.teddy.study.querydsl.cache.OffHeapResponseCache.CachedResponse;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import com.teddy.study.querydsl.support.SearchKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Set;
+
+/**
+ * /v1 ~ /v3 /members 의 직렬화된 응답 본문을 {@link OffHeapResponseCache} 에 담아 둔다.
+ * 같은 데이터 버전의 같은 요청은 조회, DTO 생성, Jackson 직렬화 없이 저장된 바이트를 그대로 쓴다.
+ *
+ * 키는 컨트롤러가 바인딩할 검색 조건과 페이지 정보를 {@link SearchKey} 로 정규화한 것에
+ * 경로, Accept, estimateCount 를 더한 것이다. 값을 해석할 수 없는 요청(숫자가 아닌 ageGoe 등)은 캐시하지 않는다.
+ *
+ * 캐시하지 않은 응답은 클라이언트에 바로 흘려보내면서 max-entry-size 까지만 복사해 둔다.
+ * 그보다 커지면 복사본을 버리므로 조건 없는 /v1 같은 큰 응답도 전부 메모리에 쌓이지 않는다.
+ */
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Set<String> CONDITION_PARAMETERS = Set.of(
+            "username", "usernameStartsWith", "usernameContains", "teamName", "ageGoe", "ageLoe");
+
+    private final OffHeapResponseCache cache;
+    private final DataVersionTracker dataVersionTracker;
+    private final SpringDataWebProperties.Pageable pageableProperties;
+    private final String sortParameter;
+    private final Set<String> endpoints;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter rejected;
+
+    public ResponseCacheFilter(OffHeapResponseCache cache, DataVersionTracker dataVersionTracker,
+                               SpringDataWebProperties dataWebProperties, Set<String> endpoints, MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.dataVersionTracker = dataVersionTracker;
+        this.pageableProperties = dataWebProperties.getPageable();
+        this.sortParameter = dataWebProperties.getSort().getSortParameter();
+        this.endpoints = endpoints;
+
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.rejected = counter(meterRegistry, "rejected");
+        Gauge.builder("member.search.response-cache.used", cache, OffHeapResponseCache::usedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("member.search.response-cache.entries", cache, OffHeapResponseCache::size)
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("member.search.response-cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // 조건부 요청은 컨트롤러의 ETag 비교가 조회 없이 304 를 돌려준다.
+        return !"GET".equals(request.getMethod())
+                || request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || !endpoints.contains(UrlPathHelper.defaultInstance.getLookupPathForRequest(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = cacheKey(request);
+        if (key == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // 버전을 조회 전에 읽어야, 조회 중에 쓰기가 끼어들면 다음 요청에서 다시 조회된다.
+        long version = dataVersionTracker.current();
+        CachedResponse cached = cache.get(key, version);
+        if (cached != null) {
+            hits.increment();
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(cached.getContentType());
+            if (cached.getEtag() != null) {
+                response.setHeader(HttpHeaders.ETAG, cached.getEtag());
+            }
+            response.setContentLength(cached.getBody().length);
+            response.getOutputStream().write(cached.getBody());
+            return;
+        }
+
+        misses.increment();
+        CapturingResponse capturing = new CapturingResponse(response, cache.getMaxEntryBytes());
+        filterChain.doFilter(request, capturing);
+        byte[] body = capturing.captured();
+        if (capturing.getStatus() == HttpStatus.OK.value() && capturing.getContentType() != null
+                && (body == null || !cache.put(key, version, capturing.getContentType(),
+                capturing.getHeader(HttpHeaders.ETAG), body))) {
+            rejected.increment();
+        }
+    }
+
+    String cacheKey(HttpServletRequest request) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(request.getParameter("username"));
+        condition.setUsernameStartsWith(request.getParameter("usernameStartsWith"));
+        condition.setUsernameContains(request.getParameter("usernameContains"));
+        condition.setTeamName(request.getParameter("teamName"));
+        for (String name : CONDITION_PARAMETERS) {
+            String[] values = request.getParameterValues(name);
+            if (values != null && values.length > 1) {
+                // 바인딩 결과(콤마로 이어 붙이기 등)를 여기서 흉내 내지 않는다.
+                return null;
+            }
+        }
+        try {
+            condition.setAgeGoe(integer(request.getParameter("ageGoe")));
+            condition.setAgeLoe(integer(request.getParameter("ageLoe")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        // 정렬은 해석 규칙이 복잡하므로 받은 문자열 그대로 키에 넣는다.
+        String[] sort = request.getParameterValues(sortParameter);
+        return UrlPathHelper.defaultInstance.getLookupPathForRequest(request)
+                + "|" + SearchKey.of(condition, pageable(request))
+                + "|" + (sort == null ? "" : String.join("&", sort))
+                + "|" + request.getHeader(HttpHeaders.ACCEPT)
+                + "|" + request.getParameter("estimateCount");
+    }
+
+    private Integer integer(String value) {
+        // 바인딩처럼 빈 문자열만 null, 공백뿐인 값은 바인딩 오류이므로 캐시하지 않는다.
+        return value == null || value.isEmpty() ? null : Integer.valueOf(value.trim());
+    }
+
+    // PageableHandlerMethodArgumentResolver 와 같은 규칙 (해석할 수 없는 값은 기본값, size 는 max-page-size 까지)
+    private PageRequest pageable(HttpServletRequest request) {
+        int page = parseOrDefault(request.getParameter(pageableProperties.getPrefix() + pageableProperties.getPageParameter()), 0);
+        if (pageableProperties.isOneIndexedParameters() && page > 0) {
+            page = page - 1;
+        }
+        int size = parseOrDefault(request.getParameter(pageableProperties.getPrefix() + pageableProperties.getSizeParameter()),
+                pageableProperties.getDefaultPageSize());
+        if (size < 1) {
+            size = pageableProperties.getDefaultPageSize();
+        }
+        return PageRequest.of(Math.max(page, 0), Math.min(size, pageableProperties.getMaxPageSize()));
+    }
+
+    private int parseOrDefault(String value, int defaultValue) {
+        if (!StringUtils.hasText(value)) {
+            return defaultValue;
+        }
+        try {
+            // 리졸버처럼 공백을 허용하지 않는다. (" 5" 는 기본값)
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 본문을 원래 응답에 그대로 쓰면서 limit 바이트까지만 복사해 둔다.
+     */
+    private static final class CapturingResponse extends HttpServletResponseWrapper {
+
+        private final int limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream(4 * 1024);
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        private CapturingResponse(HttpServletResponse response, int limit) {
+            super(response);
+            this.limit = limit;
+        }
+
+        /**
+         * @return 복사한 본문, limit 을 넘었으면 null
+         */
+        byte[] captured() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return copy == null ? null : copy.toByteArray();
+        }
+
+        private void copy(byte[] bytes, int offset, int length) {
+            if (copy == null) {
+                return;
+            }
+            if (copy.size() + length > limit) {
+                copy = null;
+                return;
+            }
+            copy.write(bytes, offset, length);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    private final byte[] single = new byte[1];
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        single[0] = (byte) b;
+                        copy(single, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        target.write(b, off, len);
+                        copy(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        target.setWriteListener(listener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.teddy.study.querydsl.contorller;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 검색 요청 파라미터만 보고 비싼(결과 크기에 상한이 없는) 요청인지 판단한다.
+ */
+public class SearchCostEstimator {
+
+    private final int maxBoundedPageSize;
+
+    public SearchCostEstimator(int maxBoundedPageSize) {
+        this.maxBoundedPageSize = maxBoundedPageSize;
+    }
+
+    public boolean isExpensive(HttpServletRequest request) {
+        boolean filtered = StringUtils.hasText(request.getParameter("username"))
+                || StringUtils.hasText(request.getParameter("usernameStartsWith"))
+                || StringUtils.hasText(request.getParameter("usernameContains"))
+                || StringUtils.hasText(request.getParameter("teamName"))
+                || StringUtils.hasText(request.getParameter("ageGoe"))
+                || StringUtils.hasText(request.getParameter("ageLoe"));
+
+        // /v1 은 페이징이 없어 조건이 없으면 테이블 전체를 돌려준다.
+        if (UrlPathHelper.defaultInstance.getLookupPathForRequest(request).startsWith("/v1/")) {
+            return !filtered;
+        }
+        return pageSize(request) > maxBoundedPageSize;
+    }
+
+    private int pageSize(HttpServletRequest request) {
+        String size = request.getParameter("size");
+        try {
+            return StringUtils.hasText(size) ? Integer.parseInt(size.trim()) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.cache.UsernameFilter;
+import com.teddy.study.querydsl.cache.UsernameNgramIndex;
+import com.teddy.study.querydsl.config.StartupProperties;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기동 후 작업: 초기 데이터 적재(local) -> username 필터 / 색인 구성 -> 대표 검색 워밍업.
+ *
+ * 웹 서버가 뜬 직후(ApplicationStartedEvent) 별도 스레드에서 실행한다.
+ * 이 HealthIndicator 는 readiness 그룹에 들어 있어 끝날 때까지 /actuator/health/readiness 가 OUT_OF_SERVICE 다.
+ * (로드밸런서는 이 값을 보고 트래픽을 보낸다)
+ */
+@Slf4j
+@Component
+public class StartupPipeline implements HealthIndicator {
+
+    private final ObjectProvider<InitMember> initMember;
+    private final UsernameFilter usernameFilter;
+    private final UsernameNgramIndex usernameIndex;
+    private final MemberRepository memberRepository;
+    private final StartupProperties properties;
+
+    private final CompletableFuture<Void> warm = new CompletableFuture<>();
+
+    public StartupPipeline(ObjectProvider<InitMember> initMember, UsernameFilter usernameFilter,
+                           UsernameNgramIndex usernameIndex, MemberRepository memberRepository,
+                           StartupProperties properties) {
+        this.initMember = initMember;
+        this.usernameFilter = usernameFilter;
+        this.usernameIndex = usernameIndex;
+        this.memberRepository = memberRepository;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onStarted() {
+        if (!properties.isAsync()) {
+            run();
+            return;
+        }
+        Thread thread = new Thread(this::run, "startup-pipeline");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        if (!warm.isDone()) {
+            return Health.outOfService().build();
+        }
+        try {
+            warm.get();
+            return Health.up().build();
+        } catch (ExecutionException e) {
+            return Health.down().withException(e.getCause()).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Health.unknown().build();
+        }
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        try {
+            initMember.ifAvailable(InitMember::init);
+            long seeded = System.nanoTime();
+
+            usernameFilter.rebuild();
+            usernameIndex.rebuild();
+            warmUp();
+
+            log.info("startup pipeline finished: seed {}ms, total {}ms",
+                    TimeUnit.NANOSECONDS.toMillis(seeded - start), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            warm.complete(null);
+        } catch (RuntimeException e) {
+            // 준비되지 않은 채로 남겨 트래픽을 받지 않게 한다.
+            log.error("startup pipeline failed, staying out of rotation", e);
+            warm.completeExceptionally(e);
+        }
+    }
+
+    private void warmUp() {
+        if (properties.getWarmupQueries() <= 0) {
+            return;
+        }
+        MemberSearchCondition teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName("teamA");
+        teamAndAge.setAgeGoe(10);
+        teamAndAge.setAgeLoe(40);
+        for (int i = 0; i < properties.getWarmupQueries(); i++) {
+            memberRepository.search(teamAndAge);
+            memberRepository.searchPageComplex(teamAndAge, PageRequest.of(i % 5, 20));
+            memberRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(i % 5, 20));
+        }
+    }
+
+    public boolean isWarm() {
+        return warm.isDone() && !warm.isCompletedExceptionally();
+    }
+
+    /**
+     * 부하 테스트 등에서 준비될 때까지 기다린다.
+     */
+    public void awaitWarm(Duration timeout) throws Exception {
+        warm.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,34 @@
+package com.teddy.study.querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * 전체 건수가 추정값일 수 있는 페이지.
+ * totalExact 가 false 면 totalElements 는 추정값이고, 실제 값은 95% 확률로 ± totalErrorBound 안에 있다.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private final boolean totalExact;
+    private final long totalErrorBound;
+
+    public EstimatedPage(List<T> content, Pageable pageable, long total, boolean totalExact, long totalErrorBound) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+        this.totalErrorBound = totalErrorBound;
+    }
+
+    public static <T> EstimatedPage<T> exact(List<T> content, Pageable pageable, long total) {
+        return new EstimatedPage<>(content, pageable, total, true, 0);
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    public long getTotalErrorBound() {
+        return totalErrorBound;
+    }
+}
@@ -6,6 +6,9 @@ import lombok.Data;
 public class MemberSearchCondition {
 
     private String username;
+    // trigram 색인으로 후보를 좁힌 뒤 like 로 확인한다.
+    private String usernameStartsWith;
+    private String usernameContains;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
@@ -0,0 +1,221 @@
+package com.teddy.study.querydsl.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 검색 결과를 행 객체 대신 컬럼 배열로 담는다. (memberId long[], age int[], teamName 은 사전 + int[] 코드)
+ * 행마다 MemberTeamDto, Long, 같은 팀 이름 문자열을 만들지 않으므로 큰 결과에서 메모리가 크게 준다.
+ *
+ * {@code List<MemberTeamDto>} 로도 쓸 수 있다. get(i) 는 값을 복사하지 않고 컬럼을 읽는 읽기 전용 행 뷰를 돌려준다.
+ * 뷰는 호출마다 새로 만들지만 같은 행이면 equals 이고, setter 를 부르면 UnsupportedOperationException 이다.
+ * JSON 으로 쓸 때는 DTO 없이 컬럼에서 바로 쓴다. (MemberTeamDto 와 같은 필드, 같은 순서)
+ */
+@JsonSerialize(using = MemberTeamColumns.Serializer.class)
+public final class MemberTeamColumns extends AbstractList<MemberTeamDto> implements RandomAccess {
+
+    private final int size;
+    private final long[] memberIds;
+    private final String[] usernames;
+    private final int[] ages;
+    private final int[] teamCodes;
+    private final String[] teamNames;
+
+    private MemberTeamColumns(int size, long[] memberIds, String[] usernames, int[] ages, int[] teamCodes, String[] teamNames) {
+        this.size = size;
+        this.memberIds = memberIds;
+        this.usernames = usernames;
+        this.ages = ages;
+        this.teamCodes = teamCodes;
+        this.teamNames = teamNames;
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public MemberTeamDto get(int index) {
+        checkIndex(index);
+        return new Row(index);
+    }
+
+    public long getMemberId(int index) {
+        checkIndex(index);
+        return memberIds[index];
+    }
+
+    public String getUsername(int index) {
+        checkIndex(index);
+        return usernames[index];
+    }
+
+    public int getAge(int index) {
+        checkIndex(index);
+        return ages[index];
+    }
+
+    /**
+     * @return {@link #getTeamNames()} 의 위치, 팀이 없으면 -1
+     */
+    public int getTeamCode(int index) {
+        checkIndex(index);
+        return teamCodes[index];
+    }
+
+    public String getTeamName(int index) {
+        int code = getTeamCode(index);
+        return code < 0 ? null : teamNames[code];
+    }
+
+    public String[] getTeamNames() {
+        return teamNames.clone();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    // 컬럼의 한 행. 값은 항상 컬럼에서 읽는다. (equals / hashCode / toString 도 getter 를 거친다)
+    private final class Row extends MemberTeamDto {
+
+        private final int index;
+
+        private Row(int index) {
+            super(null, null, 0, null);
+            this.index = index;
+        }
+
+        @Override
+        public Long getMemberId() {
+            return memberIds[index];
+        }
+
+        @Override
+        public String getUsername() {
+            return usernames[index];
+        }
+
+        @Override
+        public int getAge() {
+            return ages[index];
+        }
+
+        @Override
+        public String getTeamName() {
+            int code = teamCodes[index];
+            return code < 0 ? null : teamNames[code];
+        }
+
+        @Override
+        public void setMemberId(Long memberId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUsername(String username) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAge(int age) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTeamName(String teamName) {
+            throw readOnly();
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("rows of MemberTeamColumns are read-only");
+        }
+    }
+
+    public static final class Builder {
+
+        private int size;
+        private long[] memberIds;
+        private String[] usernames;
+        private int[] ages;
+        private int[] teamCodes;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        private Builder(int capacity) {
+            this.memberIds = new long[capacity];
+            this.usernames = new String[capacity];
+            this.ages = new int[capacity];
+            this.teamCodes = new int[capacity];
+        }
+
+        public Builder add(long memberId, String username, int age, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                usernames = Arrays.copyOf(usernames, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            usernames[size] = username;
+            ages[size] = age;
+            teamCodes[size] = teamName == null ? -1 : dictionary.computeIfAbsent(teamName, name -> dictionary.size());
+            size++;
+            return this;
+        }
+
+        public MemberTeamColumns build() {
+            String[] teamNames = new String[dictionary.size()];
+            dictionary.forEach((name, code) -> teamNames[code] = name);
+            return new MemberTeamColumns(size, memberIds, usernames, ages, teamCodes, teamNames);
+        }
+    }
+
+    public static final class Serializer extends JsonSerializer<MemberTeamColumns> {
+
+        private static final SerializedString MEMBER_ID = new SerializedString("memberId");
+        private static final SerializedString USERNAME = new SerializedString("username");
+        private static final SerializedString AGE = new SerializedString("age");
+        private static final SerializedString TEAM_NAME = new SerializedString("teamName");
+
+        @Override
+        public void serialize(MemberTeamColumns columns, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray(columns, columns.size);
+            for (int i = 0; i < columns.size; i++) {
+                gen.writeStartObject();
+                gen.writeFieldName(MEMBER_ID);
+                gen.writeNumber(columns.memberIds[i]);
+                gen.writeFieldName(USERNAME);
+                gen.writeString(columns.usernames[i]);
+                gen.writeFieldName(AGE);
+                gen.writeNumber(columns.ages[i]);
+                gen.writeFieldName(TEAM_NAME);
+                int code = columns.teamCodes[i];
+                if (code < 0) {
+                    gen.writeNull();
+                } else {
+                    gen.writeString(columns.teamNames[code]);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
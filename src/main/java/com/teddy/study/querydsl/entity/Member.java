@@ -1,12 +1,18 @@
 package com.teddy.study.querydsl.entity;
 
+import com.teddy.study.querydsl.cache.MemberUsernameListener;
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_team_name", columnList = "team_name")
+})
+@EntityListeners(MemberUsernameListener.class)
 @Getter
-@Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
@@ -15,13 +21,20 @@ public class Member {
     @GeneratedValue
     @Column(name = "member_id")
     private Long id;
+    @Setter
     private String username;
+    @Setter
     private int age;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
 
+    // 조인 없이 팀 이름으로 검색 / 조회하기 위한 비정규화 컬럼. team 과 같이 changeTeam 으로만 바꾼다.
+    // (팀 이름 변경 시 TeamNamePropagationJob 이 맞춘다)
+    @Column(name = "team_name")
+    private String teamName;
+
     public Member(String username) {
         this(username, 0);
     }
@@ -37,8 +50,13 @@ public class Member {
         }
     }
 
-    private void changeTeam(Team team) {
+    public void changeTeam(Team team) {
+        // 이전 팀 컬렉션은 이미 로딩된 경우에만 맞춘다. (EXTRA 컬렉션을 remove 때문에 통째로 읽지 않게)
+        if (this.team != null && Hibernate.isInitialized(this.team.getMembers())) {
+            this.team.getMembers().remove(this);
+        }
         this.team = team;
+        this.teamName = team.getName();
         team.getMembers().add(this);
     }
 
@@ -1,6 +1,8 @@
 package com.teddy.study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -8,7 +10,6 @@ import java.util.List;
 
 @Entity
 @Getter
-@Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
@@ -19,11 +20,29 @@ public class Team {
     private Long id;
     private String name;
 
+    // EXTRA: size / contains 는 컬렉션을 로딩하지 않고 쿼리로, add 는 로딩 없이 큐에 쌓인다.
+    // 전체 순회가 필요하면 TeamMemberIterator 로 페이지 단위로 읽는다.
     @OneToMany(mappedBy = "team")
-    public List<Member> members = new ArrayList<>();
+    @LazyCollection(LazyCollectionOption.EXTRA)
+    private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
         this.name = name;
     }
 
+    /**
+     * 이름만 바꾼다. Member.teamName 까지 맞추려면 TeamNamePropagationJob.rename 을 쓴다.
+     */
+    public void changeName(String name) {
+        this.name = name;
+    }
+
+    public int memberCount() {
+        return members.size();
+    }
+
+    public boolean hasMember(Member member) {
+        return members.contains(member);
+    }
+
 }
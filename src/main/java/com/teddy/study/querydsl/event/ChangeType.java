@@ -0,0 +1,11 @@
+package com.teddy.study.querydsl.event;
+
+public enum ChangeType {
+    INSERT,
+    UPDATE,
+    DELETE,
+    /**
+     * querydsl update / delete 같은 벌크 연산. 어떤 행이 바뀌었는지 모르므로 entityId 가 없다.
+     */
+    BULK
+}
@@ -0,0 +1,33 @@
+package com.teddy.study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Member / Team 변경 한 건. outbox 에 기록된 순서(id)대로 전달된다.
+ */
+@Getter
+@ToString
+public class EntityChange {
+
+    private final long id;
+    private final String entityType;
+    private final Long entityId;
+    private final ChangeType changeType;
+    /**
+     * UPDATE 면 바뀐 속성 이름, BULK 면 실행된 SQL
+     */
+    private final String detail;
+    private final Instant createdAt;
+
+    public EntityChange(long id, String entityType, Long entityId, ChangeType changeType, String detail, Instant createdAt) {
+        this.id = id;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.changeType = changeType;
+        this.detail = detail;
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,168 @@
+package com.teddy.study.querydsl.event;
+
+import com.teddy.study.querydsl.config.OutboxProperties;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import com.teddy.study.querydsl.support.FlushScope;
+import com.teddy.study.querydsl.support.TableWriteListener;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Member / Team 변경을 같은 트랜잭션 안에서 outbox_event 에 기록한다.
+ * - 엔티티 insert / update / delete: Hibernate post 이벤트 리스너
+ * - flush 밖에서 실행되는 벌크 update / delete: {@link TableWriteListener} (SQL 단위로 BULK 한 건)
+ *
+ * 벌크 문장은 실행(행 잠금) 전에 보이므로 바로 기록하면, 같은 행을 잡고 있는 다른 트랜잭션보다 먼저 id 를 받고
+ * 늦게 커밋될 수 있다. 그래서 BULK 는 그 문장이 실행된 뒤, 즉 같은 트랜잭션의 다음 쓰기 문장이 보일 때나 커밋 직전에 기록한다.
+ */
+@Slf4j
+@Component
+public class EntityChangeCapture implements TableWriteListener,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Map<Class<?>, String> ENTITY_TYPES = Map.of(Member.class, "Member", Team.class, "Team");
+    private static final Map<String, String> TABLE_TYPES = Map.of("member", "Member", "team", "Team");
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final OutboxProperties properties;
+
+    // outboxStore 는 테이블이 리스너 등록 전에 만들어지도록 받는다.
+    public EntityChangeCapture(EntityManagerFactory entityManagerFactory, OutboxStore outboxStore,
+                               OutboxProperties properties) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getSession(), event.getPersister(), event.getId(), ChangeType.INSERT, null);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        StringJoiner changed = new StringJoiner(",");
+        if (event.getDirtyProperties() != null) {
+            String[] names = event.getPersister().getPropertyNames();
+            for (int index : event.getDirtyProperties()) {
+                changed.add(names[index]);
+            }
+        }
+        record(event.getSession(), event.getPersister(), event.getId(), ChangeType.UPDATE, changed.toString());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getSession(), event.getPersister(), event.getId(), ChangeType.DELETE, null);
+    }
+
+    private void record(Session session, EntityPersister persister, Serializable id, ChangeType changeType, String detail) {
+        String entityType = ENTITY_TYPES.get(persister.getMappedClass());
+        if (entityType == null) {
+            return;
+        }
+        session.doWork(connection -> OutboxStore.append(connection, entityType, (Long) id, changeType, detail));
+    }
+
+    @Override
+    public void onWrite(String table, String sql) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // 이 문장이 준비되고 있다는 건 앞선 벌크 문장은 이미 실행됐다는 뜻
+        appendPendingBulk();
+
+        // flush 중의 쓰기는 위의 엔티티 이벤트로 기록된다.
+        if (FlushScope.inFlush()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            log.warn("bulk write on {} outside of a transaction is not recorded: {}", table, sql);
+            return;
+        }
+        pendingBulk().add(new String[]{TABLE_TYPES.get(table), sql});
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String[]> pendingBulk() {
+        List<String[]> pending = (List<String[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    appendPendingBulk();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeCapture.this);
+                }
+            });
+        }
+        return pending;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void appendPendingBulk() {
+        List<String[]> pending = (List<String[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (em == null) {
+            log.warn("bulk writes without a transactional EntityManager are not recorded: {}", pending.size());
+            pending.clear();
+            return;
+        }
+        List<String[]> records = new ArrayList<>(pending);
+        pending.clear();
+        em.unwrap(Session.class).doWork(connection -> {
+            for (String[] record : records) {
+                OutboxStore.append(connection, record[0], null, ChangeType.BULK, record[1]);
+            }
+        });
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
@@ -0,0 +1,12 @@
+package com.teddy.study.querydsl.event;
+
+import java.util.List;
+
+/**
+ * 빈으로 등록하면 커밋된 Member / Team 변경을 묶음으로 받는다.
+ * 같은 엔티티의 변경은 일어난 순서대로 오고, 예외를 던지면 그 묶음 전체가 다시 전달된다. (at-least-once)
+ */
+public interface EntityChangeSubscriber {
+
+    void onChanges(List<EntityChange> changes);
+}
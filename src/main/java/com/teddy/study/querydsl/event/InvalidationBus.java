@@ -0,0 +1,211 @@
+package com.teddy.study.querydsl.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 노드 사이의 캐시 무효화 방송.
+ *
+ * - 키마다 버전을 붙여 보내고, 받는 쪽은 보낸 노드 + 키별로 본 적 있는 버전보다 클 때만 반영한다. (중복 / 순서 뒤바뀜 무시)
+ *   노드마다 버전 카운터가 따로이므로 다른 노드가 보낸 더 큰 버전 때문에 버려지지 않는다.
+ * - publish 는 coalesce-window 동안 모았다가 같은 키는 가장 큰 버전 하나로 합쳐 데이터그램 단위로 보낸다.
+ * - UDP 는 유실될 수 있으므로 이 노드가 보낸 키들의 마지막 버전을 anti-entropy 주기마다 다시 보낸다.
+ */
+@Slf4j
+public class InvalidationBus implements AutoCloseable {
+
+    static final int MAX_MESSAGE_BYTES = 1400;
+    private static final int MAGIC = 0x51494E56;
+    private static final int HEADER_BYTES = 4 + 8 + 2;
+
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private final InvalidationTransport transport;
+    private final List<InvalidationListener> listeners;
+    private final long coalesceNanos;
+    private final long antiEntropyNanos;
+
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final Map<String, Long> published = new ConcurrentHashMap<>();
+    // 보낸 노드별 키 -> 반영한 버전 (노드별 버전 벡터)
+    private final Map<Long, Map<String, Long>> applied = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+
+    public InvalidationBus(InvalidationTransport transport, List<InvalidationListener> listeners,
+                           Duration coalesceWindow, Duration antiEntropyInterval) {
+        this.transport = transport;
+        this.listeners = listeners;
+        this.coalesceNanos = coalesceWindow.toNanos();
+        this.antiEntropyNanos = antiEntropyInterval.toNanos();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("invalidation-bus-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    public void start() throws IOException {
+        transport.start(this::receive);
+        if (antiEntropyNanos > 0) {
+            scheduler.scheduleWithFixedDelay(this::resendPublished, antiEntropyNanos, antiEntropyNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 다른 노드에 key 가 version 까지 바뀌었다고 알린다. 바로 보내지 않고 잠시 모은다.
+     */
+    public void publish(String key, long version) {
+        pending.merge(key, version, Math::max);
+        published.merge(key, version, Math::max);
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, coalesceNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        Map<String, Long> batch = new LinkedHashMap<>();
+        for (String key : new ArrayList<>(pending.keySet())) {
+            Long version = pending.remove(key);
+            if (version != null) {
+                batch.put(key, version);
+            }
+        }
+        send(batch);
+    }
+
+    private void resendPublished() {
+        send(new HashMap<>(published));
+    }
+
+    private void send(Map<String, Long> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            for (byte[] message : encode(keys)) {
+                transport.send(message);
+            }
+        } catch (IOException e) {
+            // 다음 anti-entropy 때 다시 보낸다.
+            log.warn("invalidation send failed", e);
+        } catch (RuntimeException e) {
+            log.warn("invalidation send failed", e);
+        }
+    }
+
+    private List<byte[]> encode(Map<String, Long> keys) throws IOException {
+        List<byte[]> messages = new ArrayList<>();
+        Map<String, Long> chunk = new LinkedHashMap<>();
+        int size = HEADER_BYTES;
+        for (Map.Entry<String, Long> entry : keys.entrySet()) {
+            int entryBytes = 2 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + 8;
+            if (size + entryBytes > MAX_MESSAGE_BYTES && !chunk.isEmpty()) {
+                messages.add(encodeChunk(chunk));
+                chunk.clear();
+                size = HEADER_BYTES;
+            }
+            chunk.put(entry.getKey(), entry.getValue());
+            size += entryBytes;
+        }
+        if (!chunk.isEmpty()) {
+            messages.add(encodeChunk(chunk));
+        }
+        return messages;
+    }
+
+    private byte[] encodeChunk(Map<String, Long> chunk) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_MESSAGE_BYTES);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeLong(nodeId);
+        out.writeShort(chunk.size());
+        for (Map.Entry<String, Long> entry : chunk.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        return bytes.toByteArray();
+    }
+
+    private void receive(byte[] message) {
+        Map<String, Long> changed = new LinkedHashMap<>();
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            long sender = in.readLong();
+            if (sender == nodeId) {
+                return;
+            }
+            Map<String, Long> fromSender = applied.computeIfAbsent(sender, id -> new ConcurrentHashMap<>());
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long version = in.readLong();
+                Long previous = fromSender.get(key);
+                if ((previous == null || version > previous) && fromSender.merge(key, version, Math::max) == version) {
+                    changed.put(key, version);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("ignoring malformed invalidation message", e);
+            return;
+        }
+
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidate(changed);
+            } catch (RuntimeException e) {
+                log.warn("invalidation listener failed", e);
+            }
+        }
+    }
+
+    public long nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 다른 노드에서 받아 반영한 키별 버전 (보낸 노드 중 가장 큰 값)
+     */
+    public Map<String, Long> appliedVersions() {
+        Map<String, Long> merged = new HashMap<>();
+        applied.values().forEach(fromSender -> fromSender.forEach((key, version) -> merged.merge(key, version, Math::max)));
+        return merged;
+    }
+
+    /**
+     * sender 노드에서 받아 반영한 키별 버전
+     */
+    public Map<String, Long> appliedVersions(long sender) {
+        return Map.copyOf(applied.getOrDefault(sender, Map.of()));
+    }
+
+    // transport 는 만든 쪽이 닫는다.
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,14 @@
+package com.teddy.study.querydsl.event;
+
+import java.util.Map;
+
+/**
+ * 다른 노드에서 온 무효화를 받는다. 키마다 이전보다 새 버전일 때만, 한 메시지 단위로 묶어서 불린다.
+ */
+public interface InvalidationListener {
+
+    /**
+     * @param keys 키 -> 버전
+     */
+    void onInvalidate(Map<String, Long> keys);
+}
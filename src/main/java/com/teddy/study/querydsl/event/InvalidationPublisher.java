@@ -0,0 +1,53 @@
+package com.teddy.study.querydsl.event;
+
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import com.teddy.study.querydsl.support.TableWriteListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 이 노드의 member / team 쓰기를 커밋 후에 {@link InvalidationBus} 로 알린다.
+ * 키는 테이블 이름, 버전은 커밋 후의 {@link DataVersionTracker} 값이다.
+ * (커밋 전에 알리면 다른 노드가 아직 커밋되지 않은 이전 데이터를 다시 캐시할 수 있다)
+ */
+public class InvalidationPublisher implements TableWriteListener {
+
+    private final InvalidationBus bus;
+    private final DataVersionTracker dataVersionTracker;
+
+    public InvalidationPublisher(InvalidationBus bus, DataVersionTracker dataVersionTracker) {
+        this.bus = bus;
+        this.dataVersionTracker = dataVersionTracker;
+    }
+
+    @Override
+    public void onWrite(String table, String sql) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bus.publish(table, dataVersionTracker.current());
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> tables = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (tables == null) {
+            Set<String> written = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, written);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(InvalidationPublisher.this);
+                    if (status == STATUS_COMMITTED) {
+                        // DataVersionTracker 의 커밋 후 증가가 먼저 등록되어 있으므로 이미 반영된 버전이다.
+                        long version = dataVersionTracker.current();
+                        written.forEach(writtenTable -> bus.publish(writtenTable, version));
+                    }
+                }
+            });
+            tables = written;
+        }
+        tables.add(table);
+    }
+}
@@ -0,0 +1,18 @@
+package com.teddy.study.querydsl.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@link InvalidationBus} 가 메시지를 주고받는 방법. 전달은 보장하지 않아도 된다. (버스가 주기적으로 다시 보낸다)
+ */
+public interface InvalidationTransport extends Closeable {
+
+    /**
+     * 수신을 시작한다. receiver 는 transport 의 수신 스레드에서 불린다.
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    void send(byte[] message) throws IOException;
+}
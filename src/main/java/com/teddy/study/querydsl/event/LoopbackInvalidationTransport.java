@@ -0,0 +1,75 @@
+package com.teddy.study.querydsl.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 127.0.0.1 의 UDP 소켓끼리 직접 보낸다. 멀티캐스트가 막힌 환경이나 테스트에서 한 호스트에 여러 노드를 띄울 때 쓴다.
+ */
+@Slf4j
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    private final DatagramSocket socket;
+    private final List<InetSocketAddress> peers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * @param port 0 이면 임의 포트
+     */
+    public LoopbackInvalidationTransport(int port) throws IOException {
+        this.socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public int getLocalPort() {
+        return socket.getLocalPort();
+    }
+
+    public void addPeer(int port) {
+        peers.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        running = true;
+        Thread thread = new Thread(() -> receive(receiver), "invalidation-loopback-" + getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void receive(Consumer<byte[]> receiver) {
+        byte[] buffer = new byte[InvalidationBus.MAX_MESSAGE_BYTES];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                receiver.accept(Arrays.copyOf(packet.getData(), packet.getLength()));
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("loopback receive failed", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void send(byte[] message) throws IOException {
+        for (InetSocketAddress peer : peers) {
+            socket.send(new DatagramPacket(message, message.length, peer));
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        socket.close();
+    }
+}
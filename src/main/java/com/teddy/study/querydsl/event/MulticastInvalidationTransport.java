@@ -0,0 +1,73 @@
+package com.teddy.study.querydsl.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 같은 네트워크의 노드들에게 UDP 멀티캐스트로 보낸다. 같은 호스트의 다른 프로세스도 받는다. (loopback 모드 기본값)
+ */
+@Slf4j
+public class MulticastInvalidationTransport implements InvalidationTransport {
+
+    private final InetSocketAddress group;
+    private final NetworkInterface networkInterface;
+    private final MulticastSocket socket;
+    private volatile boolean running;
+
+    public MulticastInvalidationTransport(String group, int port, int timeToLive, String interfaceName) throws IOException {
+        this.group = new InetSocketAddress(InetAddress.getByName(group), port);
+        this.networkInterface = interfaceName == null || interfaceName.isEmpty() ? null : NetworkInterface.getByName(interfaceName);
+        this.socket = new MulticastSocket(port);
+        this.socket.setTimeToLive(timeToLive);
+        if (networkInterface != null) {
+            this.socket.setNetworkInterface(networkInterface);
+        }
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) throws IOException {
+        socket.joinGroup(group, networkInterface);
+        running = true;
+        Thread thread = new Thread(() -> receive(receiver), "invalidation-multicast");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void receive(Consumer<byte[]> receiver) {
+        byte[] buffer = new byte[InvalidationBus.MAX_MESSAGE_BYTES];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                receiver.accept(Arrays.copyOf(packet.getData(), packet.getLength()));
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("multicast receive failed", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void send(byte[] message) throws IOException {
+        socket.send(new DatagramPacket(message, message.length, group));
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            socket.leaveGroup(group, networkInterface);
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.teddy.study.querydsl.event;
+
+import com.teddy.study.querydsl.config.OutboxProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 커밋된 outbox_event 를 id 순서로 점유해 {@link EntityChangeSubscriber} 들에게 묶음으로 전달하고 지운다.
+ * - 점유(짧은 트랜잭션) -> 전달(트랜잭션 밖) -> 삭제 순서라, 구독자가 느려도 DB 잠금을 잡고 있지 않는다.
+ * - 점유 중인 묶음은 모든 인스턴스를 통틀어 하나뿐이라 같은 행을 두 인스턴스가 전달하지 않고 id 순서가 유지된다.
+ * - 같은 행을 바꾸는 트랜잭션은 행 잠금으로 직렬화되고, 기록은 쓰기 문장이 실행된 뒤에 하므로
+ *   (BULK 포함, EntityChangeCapture 참고) 같은 엔티티의 변경은 먼저 커밋된 쪽이 작은 id 를 갖는다.
+ * 구독자가 실패하면 점유를 풀고 다음 주기에 다시 보낸다. 전달이 claim-timeout 보다 오래 걸리면 다른 인스턴스가 다시 보낼 수 있다.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private final String owner = UUID.randomUUID().toString();
+    private final OutboxStore outboxStore;
+    private final ObjectProvider<EntityChangeSubscriber> subscribers;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties properties;
+    private final Counter dispatched;
+    private final Counter failures;
+
+    public OutboxDispatcher(OutboxStore outboxStore, ObjectProvider<EntityChangeSubscriber> subscribers,
+                            PlatformTransactionManager transactionManager, OutboxProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.outboxStore = outboxStore;
+        this.subscribers = subscribers;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.dispatched = Counter.builder("outbox.events.dispatched").register(meterRegistry);
+        this.failures = Counter.builder("outbox.dispatch.failures").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            // 한 묶음이 가득 찼으면 밀린 것이 있으므로 바로 이어서 보낸다.
+            while (dispatch() == properties.getBatchSize()) {
+                log.debug("outbox backlog, dispatching next batch");
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("outbox dispatch failed, will retry", e);
+        }
+    }
+
+    /**
+     * 한 묶음을 전달하고 전달한 수를 돌려준다.
+     */
+    public int dispatch() {
+        List<EntityChange> changes = transactionTemplate.execute(status -> {
+            Instant until = Instant.now().plus(properties.getClaimTimeout());
+            if (outboxStore.claim(owner, properties.getBatchSize(), until) == 0) {
+                return List.of();
+            }
+            return outboxStore.fetchClaimed(owner);
+        });
+        if (changes == null || changes.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            List<EntityChangeSubscriber> targets = subscribers.orderedStream().collect(Collectors.toList());
+            for (EntityChangeSubscriber subscriber : targets) {
+                subscriber.onChanges(changes);
+            }
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> outboxStore.release(owner));
+            throw e;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> outboxStore.delete(changes, owner));
+        dispatched.increment(changes.size());
+        return changes.size();
+    }
+}
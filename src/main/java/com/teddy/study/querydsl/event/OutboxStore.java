@@ -0,0 +1,115 @@
+package com.teddy.study.querydsl.event;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * outbox_event 테이블. 엔티티가 아니라서 ddl-auto: create 로 스키마를 다시 만들어도 지워지지 않고,
+ * 재시작 전에 전달되지 못한 변경은 다음 실행에서 다시 전달된다.
+ *
+ * 전달할 행은 claimed_by / claimed_until 로 먼저 점유한다. 다른 인스턴스가 유효한 점유를 갖고 있으면 점유하지 않으므로
+ * 동시에 전달 중인 묶음은 전체에서 하나뿐이고 (id 순서 유지), 점유한 인스턴스가 죽으면 claimed_until 이 지나 다시 점유된다.
+ */
+@Component
+public class OutboxStore {
+
+    private static final int MAX_DETAIL = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("create table if not exists outbox_event ("
+                + " id bigint auto_increment primary key,"
+                + " entity_type varchar(50) not null,"
+                + " entity_id bigint,"
+                + " change_type varchar(10) not null,"
+                + " detail varchar(" + MAX_DETAIL + "),"
+                + " created_at timestamp not null,"
+                + " claimed_by varchar(64),"
+                + " claimed_until timestamp)");
+        // 점유 컬럼이 없던 이전 테이블
+        jdbcTemplate.execute("alter table outbox_event add column if not exists claimed_by varchar(64)");
+        jdbcTemplate.execute("alter table outbox_event add column if not exists claimed_until timestamp");
+    }
+
+    /**
+     * 변경을 일으킨 트랜잭션의 커넥션으로 기록해야 같이 커밋 / 롤백된다.
+     */
+    static void append(Connection connection, String entityType, Long entityId, ChangeType changeType, String detail)
+            throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "insert into outbox_event (entity_type, entity_id, change_type, detail, created_at) values (?, ?, ?, ?, ?)")) {
+            ps.setString(1, entityType);
+            if (entityId == null) {
+                ps.setNull(2, Types.BIGINT);
+            } else {
+                ps.setLong(2, entityId);
+            }
+            ps.setString(3, changeType.name());
+            ps.setString(4, detail == null || detail.length() <= MAX_DETAIL ? detail : detail.substring(0, MAX_DETAIL));
+            ps.setTimestamp(5, Timestamp.from(Instant.now()));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 커밋된 행 중 앞에서부터 limit 개를 owner 가 until 까지 점유한다. 다른 owner 의 점유가 살아 있으면 0.
+     * 같은 행을 동시에 점유하려는 쪽은 행 잠금에서 기다린 뒤 조건을 다시 보고 빈손으로 끝난다.
+     */
+    public int claim(String owner, int limit, Instant until) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return jdbcTemplate.update("update outbox_event set claimed_by = ?, claimed_until = ?"
+                        + " where id in (select id from outbox_event order by id limit ?)"
+                        + " and (claimed_by is null or claimed_by = ? or claimed_until < ?)"
+                        + " and not exists (select 1 from outbox_event o where o.claimed_by <> ? and o.claimed_until >= ?)",
+                owner, Timestamp.from(until), limit, owner, now, owner, now);
+    }
+
+    public List<EntityChange> fetchClaimed(String owner) {
+        return jdbcTemplate.query(
+                "select id, entity_type, entity_id, change_type, detail, created_at from outbox_event"
+                        + " where claimed_by = ? order by id",
+                (rs, rowNum) -> new EntityChange(
+                        rs.getLong("id"),
+                        rs.getString("entity_type"),
+                        rs.getObject("entity_id") == null ? null : rs.getLong("entity_id"),
+                        ChangeType.valueOf(rs.getString("change_type")),
+                        rs.getString("detail"),
+                        rs.getTimestamp("created_at").toInstant()),
+                owner);
+    }
+
+    /**
+     * 전달을 마친 행을 지운다. 점유가 만료돼 다른 owner 에게 넘어간 행은 그쪽이 다시 전달하므로 남겨 둔다.
+     */
+    public void delete(List<EntityChange> changes, String owner) {
+        jdbcTemplate.batchUpdate("delete from outbox_event where id = ? and claimed_by = ?", changes, changes.size(),
+                (ps, change) -> {
+                    ps.setLong(1, change.getId());
+                    ps.setString(2, owner);
+                });
+    }
+
+    public void release(String owner) {
+        jdbcTemplate.update("update outbox_event set claimed_by = null, claimed_until = null where claimed_by = ?", owner);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("select count(*) from outbox_event", Long.class);
+        return count == null ? 0 : count;
+    }
+}
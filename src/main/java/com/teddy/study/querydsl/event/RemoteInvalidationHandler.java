@@ -0,0 +1,37 @@
+package com.teddy.study.querydsl.event;
+
+import com.teddy.study.querydsl.cache.UsernameFilter;
+import com.teddy.study.querydsl.cache.UsernameNgramIndex;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+
+import java.util.Map;
+
+/**
+ * 다른 노드의 member / team 쓰기를 이 노드의 로컬 캐시에 반영한다.
+ * - 데이터 버전을 받은 버전 이상으로, 최소 1 은 올린다. (ETag, 미리 읽은 페이지, 응답 캐시가 버전으로 무효화된다)
+ * - member 가 바뀌었으면 username 필터와 색인은 재구성 전까지 쓰지 않는다.
+ */
+public class RemoteInvalidationHandler implements InvalidationListener {
+
+    private final DataVersionTracker dataVersionTracker;
+    private final UsernameFilter usernameFilter;
+    private final UsernameNgramIndex usernameIndex;
+
+    public RemoteInvalidationHandler(DataVersionTracker dataVersionTracker, UsernameFilter usernameFilter,
+                                     UsernameNgramIndex usernameIndex) {
+        this.dataVersionTracker = dataVersionTracker;
+        this.usernameFilter = usernameFilter;
+        this.usernameIndex = usernameIndex;
+    }
+
+    @Override
+    public void onInvalidate(Map<String, Long> keys) {
+        keys.forEach((key, version) -> {
+            dataVersionTracker.advanceTo(version);
+            if ("member".equals(key)) {
+                usernameFilter.invalidate();
+                usernameIndex.invalidate();
+            }
+        });
+    }
+}
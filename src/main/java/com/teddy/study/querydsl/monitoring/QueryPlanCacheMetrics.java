@@ -0,0 +1,51 @@
+package com.teddy.study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate 쿼리 플랜 캐시(JPQL 모양별 번역 결과 재사용)와 JDBC 문장 준비 횟수.
+ * 커넥션 풀 지표(hikaricp.connections.*)는 스프링 부트가 등록한다.
+ * hibernate.generate_statistics 가 꺼져 있으면 등록하지 않는다. (0% 적중률처럼 보이지 않게)
+ * 실행 중에 통계를 끄거나 아직 쿼리가 없으면 적중률은 NaN 이다.
+ */
+@Component
+public class QueryPlanCacheMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+
+    public QueryPlanCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        FunctionCounter.builder("hibernate.query.plan.cache.hit", statistics, Statistics::getQueryPlanCacheHitCount)
+                .register(registry);
+        FunctionCounter.builder("hibernate.query.plan.cache.miss", statistics, Statistics::getQueryPlanCacheMissCount)
+                .register(registry);
+        Gauge.builder("hibernate.query.plan.cache.hit.ratio", statistics, QueryPlanCacheMetrics::hitRatio)
+                .register(registry);
+        FunctionCounter.builder("hibernate.statements.prepared", statistics, Statistics::getPrepareStatementCount)
+                .register(registry);
+    }
+
+    static double hitRatio(Statistics statistics) {
+        if (!statistics.isStatisticsEnabled()) {
+            return Double.NaN;
+        }
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long total = hits + statistics.getQueryPlanCacheMissCount();
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+}
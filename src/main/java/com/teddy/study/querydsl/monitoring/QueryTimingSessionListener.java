@@ -0,0 +1,41 @@
+package com.teddy.study.querydsl.monitoring;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * hibernate.session.events.auto 로 모든 세션에 붙는다. 측정 중인 호출이 없으면 아무것도 하지 않는다.
+ */
+public class QueryTimingSessionListener extends BaseSessionEventListener {
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        QueryTimings timings = QueryTimings.current();
+        if (timings != null) {
+            timings.prepareStart();
+        }
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        QueryTimings timings = QueryTimings.current();
+        if (timings != null) {
+            timings.prepareEnd();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        QueryTimings timings = QueryTimings.current();
+        if (timings != null) {
+            timings.executeStart();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        QueryTimings timings = QueryTimings.current();
+        if (timings != null) {
+            timings.executeEnd();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.teddy.study.querydsl.monitoring;
+
+/**
+ * 현재 스레드에서 진행 중인 리포지토리 호출의 JDBC 구간 시간을 모은다.
+ * {@link RepositoryEventAspect} 가 열고 닫으며, 그 사이 {@link QueryTimingSessionListener} 가 채운다.
+ */
+final class QueryTimings {
+
+    private static final ThreadLocal<QueryTimings> CURRENT = new ThreadLocal<>();
+
+    private final QueryTimings parent;
+    private final long startNanos;
+    private long firstPrepareNanos = -1;
+    private long phaseStartNanos;
+    private long sqlNanos;
+    private int statementCount;
+
+    private QueryTimings(QueryTimings parent, long startNanos) {
+        this.parent = parent;
+        this.startNanos = startNanos;
+    }
+
+    static QueryTimings begin() {
+        QueryTimings timings = new QueryTimings(CURRENT.get(), System.nanoTime());
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static QueryTimings current() {
+        return CURRENT.get();
+    }
+
+    void end() {
+        if (parent == null) {
+            CURRENT.remove();
+            return;
+        }
+        // 안쪽 호출의 SQL 도 바깥 호출이 실행한 것이다.
+        if (parent.firstPrepareNanos < 0) {
+            parent.firstPrepareNanos = firstPrepareNanos;
+        }
+        parent.sqlNanos += sqlNanos;
+        parent.statementCount += statementCount;
+        CURRENT.set(parent);
+    }
+
+    void prepareStart() {
+        long now = System.nanoTime();
+        if (firstPrepareNanos < 0) {
+            firstPrepareNanos = now;
+        }
+        phaseStartNanos = now;
+    }
+
+    void executeStart() {
+        phaseStartNanos = System.nanoTime();
+    }
+
+    void prepareEnd() {
+        sqlNanos += System.nanoTime() - phaseStartNanos;
+    }
+
+    void executeEnd() {
+        sqlNanos += System.nanoTime() - phaseStartNanos;
+        statementCount++;
+    }
+
+    long buildNanos(long endNanos) {
+        return (firstPrepareNanos < 0 ? endNanos : firstPrepareNanos) - startNanos;
+    }
+
+    long sqlNanos() {
+        return sqlNanos;
+    }
+
+    int statementCount() {
+        return statementCount;
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+}
@@ -0,0 +1,46 @@
+package com.teddy.study.querydsl.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 리포지토리 메소드 한 번의 호출. 이벤트의 duration 이 전체 시간이다.
+ */
+@Name("com.teddy.study.querydsl.RepositoryCall")
+@Label("Repository Call")
+@Category({"Querydsl", "Repository"})
+@StackTrace(false)
+public class RepositoryCallEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Query Shape")
+    @Description("메소드와 값이 들어온 검색 조건 필드, 페이지 크기")
+    String queryShape;
+
+    @Label("Row Count")
+    long rowCount;
+
+    @Label("Statement Count")
+    int statementCount;
+
+    @Label("Query Build Time")
+    @Description("첫 SQL 준비 전까지의 시간 (JPQL 직렬화, HQL 번역)")
+    @Timespan(Timespan.NANOSECONDS)
+    long buildTime;
+
+    @Label("SQL Time")
+    @Description("JDBC prepare + execute 시간의 합")
+    @Timespan(Timespan.NANOSECONDS)
+    long sqlTime;
+
+    @Label("Mapping Time")
+    @Description("나머지 시간 (ResultSet 읽기, 엔티티 / DTO 생성)")
+    @Timespan(Timespan.NANOSECONDS)
+    long mappingTime;
+}
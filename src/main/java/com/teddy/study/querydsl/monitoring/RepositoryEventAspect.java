@@ -0,0 +1,99 @@
+package com.teddy.study.querydsl.monitoring;
+
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import jdk.jfr.EventType;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * MemberRepositoryCustom 구현체와 MemberJpaRepository 호출마다 {@link RepositoryCallEvent} 를 남긴다.
+ * JFR 에서 이벤트가 꺼져 있으면 시간 측정 없이 바로 호출한다.
+ * 안쪽 호출(다른 리포지토리를 부르는 경우)의 SQL 시간과 문장 수는 바깥 호출에도 더해진다.
+ */
+@Aspect
+@Component
+public class RepositoryEventAspect {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(RepositoryCallEvent.class);
+
+    @Around("execution(public * com.teddy.study.querydsl.repository.MemberRepositoryImpl.*(..))"
+            + " || execution(public * com.teddy.study.querydsl.repository.MemberJpaRepository.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        // 녹화 중이 아니면 이벤트 객체도 만들지 않는다.
+        if (!EVENT_TYPE.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        event.begin();
+        QueryTimings timings = QueryTimings.begin();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            long end = System.nanoTime();
+            timings.end();
+            event.end();
+            if (event.shouldCommit()) {
+                String method = joinPoint.getSignature().getName();
+                event.method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + method;
+                event.queryShape = queryShape(method, joinPoint.getArgs());
+                event.rowCount = rowCount(result);
+                event.statementCount = timings.statementCount();
+                event.buildTime = timings.buildNanos(end);
+                event.sqlTime = timings.sqlNanos();
+                event.mappingTime = Math.max(0, end - timings.startNanos() - event.buildTime - event.sqlTime);
+                event.commit();
+            }
+        }
+    }
+
+    private String queryShape(String method, Object[] args) {
+        StringBuilder shape = new StringBuilder(method).append('(');
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition) {
+                MemberSearchCondition condition = (MemberSearchCondition) arg;
+                appendIf(shape, StringUtils.hasText(condition.getUsername()), "username");
+                appendIf(shape, StringUtils.hasText(condition.getUsernameStartsWith()), "usernameStartsWith");
+                appendIf(shape, StringUtils.hasText(condition.getUsernameContains()), "usernameContains");
+                appendIf(shape, StringUtils.hasText(condition.getTeamName()), "teamName");
+                appendIf(shape, condition.getAgeGoe() != null, "ageGoe");
+                appendIf(shape, condition.getAgeLoe() != null, "ageLoe");
+            } else if (arg instanceof Pageable && ((Pageable) arg).isPaged()) {
+                appendIf(shape, true, "size=" + ((Pageable) arg).getPageSize());
+            }
+        }
+        return shape.append(')').toString();
+    }
+
+    private void appendIf(StringBuilder shape, boolean condition, String part) {
+        if (condition) {
+            if (shape.charAt(shape.length() - 1) != '(') {
+                shape.append(',');
+            }
+            shape.append(part);
+        }
+    }
+
+    private long rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return result == null ? 0 : 1;
+    }
+}
@@ -0,0 +1,28 @@
+package com.teddy.study.querydsl.monitoring;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@ToString
+public class SqlTrace {
+
+    private final Instant startedAt;
+    private final String thread;
+    private final String sql;
+    private final List<String> binds;
+    private final long elapsedMicros;
+    private final boolean slow;
+
+    public SqlTrace(Instant startedAt, String thread, String sql, List<String> binds, long elapsedMicros, boolean slow) {
+        this.startedAt = startedAt;
+        this.thread = thread;
+        this.sql = sql;
+        this.binds = binds;
+        this.elapsedMicros = elapsedMicros;
+        this.slow = slow;
+    }
+}
@@ -0,0 +1,46 @@
+package com.teddy.study.querydsl.monitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 최근 SQL 기록을 담는 고정 크기 링 버퍼. 가득 차면 가장 오래된 기록을 덮어쓴다.
+ */
+public class SqlTraceBuffer {
+
+    private final AtomicReferenceArray<SqlTrace> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SqlTraceBuffer(int size) {
+        this.slots = new AtomicReferenceArray<>(Math.max(size, 1));
+    }
+
+    public void record(SqlTrace trace) {
+        long next = sequence.getAndIncrement();
+        slots.set((int) (next % slots.length()), trace);
+    }
+
+    /**
+     * 오래된 것부터 순서대로 돌려준다.
+     */
+    public List<SqlTrace> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(0, end - slots.length());
+        List<SqlTrace> traces = new ArrayList<>((int) (end - start));
+        for (long i = start; i < end; i++) {
+            SqlTrace trace = slots.get((int) (i % slots.length()));
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.teddy.study.querydsl.monitoring;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(SqlTraceProperties.class)
+public class SqlTraceConfig {
+
+    @Bean
+    public SqlTraceBuffer sqlTraceBuffer(SqlTraceProperties properties) {
+        return new SqlTraceBuffer(properties.getBufferSize());
+    }
+
+    @Bean
+    public SqlTraceEndpoint sqlTraceEndpoint(SqlTraceBuffer sqlTraceBuffer) {
+        return new SqlTraceEndpoint(sqlTraceBuffer);
+    }
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<SqlTraceProperties> properties,
+                                                                   ObjectProvider<SqlTraceBuffer> buffer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // 샘플링도 느린 쿼리 기준도 꺼져 있으면 원본 DataSource 를 그대로 쓴다.
+                if (bean instanceof DataSource && !(bean instanceof TracingDataSource)
+                        && TracingDataSource.isActive(properties.getObject())) {
+                    return new TracingDataSource((DataSource) bean, properties.getObject(), buffer.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
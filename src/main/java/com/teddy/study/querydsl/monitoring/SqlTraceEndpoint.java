@@ -0,0 +1,28 @@
+package com.teddy.study.querydsl.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+
+/**
+ * GET /actuator/sqltrace 로 링 버퍼 내용을 덤프, DELETE 로 비운다.
+ */
+@Endpoint(id = "sqltrace")
+@RequiredArgsConstructor
+public class SqlTraceEndpoint {
+
+    private final SqlTraceBuffer sqlTraceBuffer;
+
+    @ReadOperation
+    public List<SqlTrace> traces() {
+        return sqlTraceBuffer.snapshot();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        sqlTraceBuffer.clear();
+    }
+}
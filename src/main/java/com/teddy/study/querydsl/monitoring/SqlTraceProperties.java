@@ -0,0 +1,27 @@
+package com.teddy.study.querydsl.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.sql-trace")
+public class SqlTraceProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 0.0 ~ 1.0, 바인드 값까지 기록할 문장의 비율
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * 이 시간 이상 걸린 문장은 샘플링과 관계없이 기록한다. 0 이면 끔
+     */
+    private Duration slowThreshold = Duration.ofMillis(200);
+
+    private int bufferSize = 1024;
+}
@@ -0,0 +1,69 @@
+package com.teddy.study.querydsl.monitoring;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 샘플링 / 느린 쿼리 기준으로 SQL 을 {@link SqlTraceBuffer} 에 기록하는 DataSource.
+ * 기록 대상이 아닌 문장은 문자열을 만들거나 버퍼에 쓰지 않는다.
+ * 느린 쿼리 기준이 꺼져 있으면 샘플링되지 않은 문장은 감싸지도 않고 원본을 그대로 돌려준다.
+ * 둘 다 꺼져 있으면 {@link SqlTraceConfig} 가 이 클래스로 감싸지 않는다. ({@link #isActive})
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+    private final SqlTraceBuffer buffer;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+
+    public TracingDataSource(DataSource target, SqlTraceProperties properties, SqlTraceBuffer buffer) {
+        super(target);
+        this.buffer = buffer;
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    public static boolean isActive(SqlTraceProperties properties) {
+        return properties.isEnabled()
+                && (properties.getSampleRate() > 0 || !properties.getSlowThreshold().isZero());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new TracingConnection(obtainTargetDataSource().getConnection(), this);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return new TracingConnection(obtainTargetDataSource().getConnection(username, password), this);
+    }
+
+    boolean sample() {
+        return sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    boolean tracksSlow() {
+        return slowThresholdNanos > 0;
+    }
+
+    void executed(String sql, Object[] binds, int bindCount, long elapsedNanos, boolean sampled) {
+        boolean slow = slowThresholdNanos > 0 && elapsedNanos >= slowThresholdNanos;
+        if (!sampled && !slow) {
+            return;
+        }
+        List<String> values = new ArrayList<>(bindCount);
+        for (int i = 0; i < bindCount; i++) {
+            values.add(String.valueOf(binds[i]));
+        }
+        Instant startedAt = Instant.now().minusNanos(elapsedNanos);
+        buffer.record(new SqlTrace(startedAt, Thread.currentThread().getName(), sql,
+                Collections.unmodifiableList(values), elapsedNanos / 1_000, slow));
+    }
+}
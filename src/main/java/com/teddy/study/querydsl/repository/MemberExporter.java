@@ -0,0 +1,276 @@
+package com.teddy.study.querydsl.repository;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.teddy.study.querydsl.config.ExportProperties;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static com.teddy.study.querydsl.entity.QMember.member;
+
+/**
+ * 전체 회원을 NDJSON 으로 내보낸다. member_id 공간을 구간으로 나눠 구간마다
+ * 별도 읽기 전용 트랜잭션(커넥션)으로 읽고, 매핑 / 직렬화까지 구간 단위로 병렬 처리한다.
+ * 구간마다 트랜잭션이 따로이므로 내보내는 동안 바뀐 행은 구간에 따라 반영될 수도, 아닐 수도 있다.
+ *
+ * 모든 내보내기가 parallelism 크기의 스레드 풀 하나를 나눠 쓰므로, 동시에 몇 건을 내보내도 커넥션은 parallelism 개까지만 잡는다.
+ * 쓰기에 실패하면(클라이언트가 끊으면) 남은 구간은 다음 행을 읽기 전에 멈춘다.
+ */
+@Slf4j
+@Component
+public class MemberExporter {
+
+    private static final SerializedString MEMBER_ID = new SerializedString("memberId");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString AGE = new SerializedString("age");
+    private static final SerializedString TEAM_NAME = new SerializedString("teamName");
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MemberTableQueries tableQueries;
+    private final ObjectMapper objectMapper;
+    private final ExportProperties properties;
+    private final MemberSearchPredicates predicates;
+    private final ExecutorService executor;
+
+    public MemberExporter(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+                          MemberTableQueries tableQueries, ObjectMapper objectMapper, ExportProperties properties,
+                          MemberSearchPredicates predicates) {
+        this.queryFactory = queryFactory;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tableQueries = tableQueries;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.predicates = predicates;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-export-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(properties.getParallelism(), properties.getParallelism(),
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    /**
+     * member_id 순서대로 out 에 이어 쓴다. 앞 구간이 끝나기를 기다리는 동안 뒤 구간은 최대
+     * parallelism * bufferedPartitionsPerThread 개까지 미리 만들어 둔다.
+     */
+    public long exportTo(OutputStream out) throws IOException {
+        List<IdRange> ranges = partitions();
+        int window = properties.getParallelism() * properties.getBufferedPartitionsPerThread();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        try {
+            long rows = 0;
+            int next = 0;
+            while (next < ranges.size() || !inFlight.isEmpty()) {
+                while (next < ranges.size() && inFlight.size() < window) {
+                    IdRange range = ranges.get(next++);
+                    inFlight.add(executor.submit(() -> bufferPartition(range, cancelled)));
+                }
+                Chunk chunk = await(inFlight.poll());
+                chunk.bytes.writeTo(out);
+                rows += chunk.rows;
+            }
+            out.flush();
+            return rows;
+        } finally {
+            cancelled.set(true);
+            inFlight.forEach(task -> task.cancel(true));
+        }
+    }
+
+    /**
+     * 구간마다 파일 하나씩 (members-00000.ndjson ...) 독립적으로 쓴다. 파일 이름 순서가 member_id 순서다.
+     */
+    public List<Path> exportChunks(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<IdRange> ranges = partitions();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<Future<Path>> tasks = new ArrayList<>(ranges.size());
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                IdRange range = ranges.get(i);
+                Path file = directory.resolve(String.format("members-%05d.ndjson", i));
+                tasks.add(executor.submit(() -> {
+                    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+                        writePartition(range, out, cancelled);
+                    }
+                    return file;
+                }));
+            }
+
+            List<Path> files = new ArrayList<>(tasks.size());
+            for (Future<Path> task : tasks) {
+                files.add(await(task));
+            }
+            return files;
+        } finally {
+            cancelled.set(true);
+            tasks.forEach(task -> task.cancel(true));
+        }
+    }
+
+    @Scheduled(cron = "${querydsl.export.cron:-}")
+    public void nightly() throws IOException {
+        if (!StringUtils.hasText(properties.getDirectory())) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Path> files = exportChunks(Paths.get(properties.getDirectory()).resolve(LocalDate.now().toString()));
+        log.info("member export: {} files in {} ms", files.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * [min, max] member_id 를 같은 폭의 구간으로 나눈다. 구간 수는 추정 행 수 / partitionRows 와 parallelism 중 큰 값.
+     */
+    List<IdRange> partitions() {
+        Tuple bounds = readOnly(() -> queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne());
+        Long min = bounds == null ? null : bounds.get(member.id.min());
+        Long max = bounds == null ? null : bounds.get(member.id.max());
+        if (min == null || max == null) {
+            return new ArrayList<>();
+        }
+
+        long span = max - min + 1;
+        long byRows = (tableQueries.memberRowEstimate() + properties.getPartitionRows() - 1) / properties.getPartitionRows();
+        long count = Math.min(span, Math.max(properties.getParallelism(), byRows));
+        long width = (span + count - 1) / count;
+
+        List<IdRange> ranges = new ArrayList<>((int) count);
+        for (long from = min; from <= max; from += width) {
+            ranges.add(new IdRange(from, Math.min(max, from + width - 1)));
+        }
+        return ranges;
+    }
+
+    private <T> T await(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("export interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("export failed", e.getCause());
+        }
+    }
+
+    private Chunk bufferPartition(IdRange range, AtomicBoolean cancelled) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        long rows = writePartition(range, bytes, cancelled);
+        return new Chunk(bytes, rows);
+    }
+
+    private long writePartition(IdRange range, OutputStream out, AtomicBoolean cancelled) throws IOException {
+        try {
+            return readOnly(() -> {
+                try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+                     Stream<Tuple> rows = predicates.withTeam(queryFactory
+                             .select(member.id, member.username, member.age, predicates.teamName())
+                             .from(member))
+                             .where(member.id.between(range.getFrom(), range.getTo()))
+                             .orderBy(member.id.asc())
+                             .setHint(QueryHints.HINT_FETCH_SIZE, properties.getFetchSize())
+                             .stream()) {
+                    // 다른 구간 출력과 이어 붙이므로 스트림은 닫지 않는다.
+                    gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    long count = 0;
+                    for (Tuple row : (Iterable<Tuple>) rows::iterator) {
+                        if (cancelled.get()) {
+                            // 읽기 전용 트랜잭션은 롤백되고 커넥션은 바로 풀로 돌아간다.
+                            throw new CancellationException("export cancelled: " + range.getFrom() + ".." + range.getTo());
+                        }
+                        writeRow(gen, row);
+                        count++;
+                    }
+                    return count;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void writeRow(JsonGenerator gen, Tuple row) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(MEMBER_ID);
+        gen.writeNumber(row.get(member.id));
+        gen.writeFieldName(USERNAME);
+        gen.writeString(row.get(member.username));
+        gen.writeFieldName(AGE);
+        gen.writeNumber(row.get(member.age));
+        gen.writeFieldName(TEAM_NAME);
+        gen.writeString(row.get(3, String.class));
+        gen.writeEndObject();
+        gen.writeRaw('\n');
+    }
+
+    // 구간마다 새 읽기 전용 트랜잭션 (호출한 쪽 트랜잭션과 무관하게 커넥션 하나를 잡는다)
+    private <T> T readOnly(Supplier<T> work) {
+        return readOnlyTransaction.execute(status -> work.get());
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class IdRange {
+        private final long from;
+        private final long to;
+    }
+
+    @RequiredArgsConstructor
+    private static class Chunk {
+        private final ByteArrayOutputStream bytes;
+        private final long rows;
+    }
+}
@@ -1,16 +1,17 @@
 package com.teddy.study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.dto.MemberTeamColumns;
 import com.teddy.study.querydsl.dto.MemberTeamDto;
 import com.teddy.study.querydsl.dto.QMemberDto;
 import com.teddy.study.querydsl.dto.QMemberTeamDto;
 import com.teddy.study.querydsl.entity.Member;
 import com.teddy.study.querydsl.entity.QMember;
-import com.teddy.study.querydsl.entity.QTeam;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
@@ -18,9 +19,9 @@ import org.springframework.util.StringUtils;
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static com.teddy.study.querydsl.entity.QMember.*;
-import static com.teddy.study.querydsl.entity.QTeam.*;
 
 @Repository
 //@RequiredArgsConstructor
@@ -28,10 +29,14 @@ public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchPredicates predicates;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em,
+                               JPAQueryFactory queryFactory,
+                               MemberSearchPredicates predicates) {
         this.em = em;
-        this.queryFactory = new JPAQueryFactory(em);
+        this.queryFactory = queryFactory;
+        this.predicates = predicates;
     }
 
 //    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
@@ -75,8 +80,10 @@ public class MemberJpaRepository {
         if (StringUtils.hasText(condition.getUsername())) {
             builder.and(member.username.eq(condition.getUsername()));
         }
+        builder.and(predicates.usernameStartsWith(condition.getUsernameStartsWith()));
+        builder.and(predicates.usernameContains(condition.getUsernameContains()));
         if (StringUtils.hasText(condition.getTeamName())) {
-            builder.and(team.name.eq(condition.getTeamName()));
+            builder.and(predicates.teamName().eq(condition.getTeamName()));
         }
         if (condition.getAgeGoe() != null) {
             builder.and(member.age.goe(condition.getAgeGoe()));
@@ -85,62 +92,46 @@ public class MemberJpaRepository {
             builder.and(member.age.goe(condition.getAgeLoe()));
         }
 
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId")
-                        , member.username
-                        , member.age
-                        , team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
+        return predicates.withTeam(queryFactory
+                .select(memberTeamDto())
+                .from(member))
                 .where(builder)
                 .fetch();
     }
 
-    public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId")
-                        , member.username
-                        , member.age
-                        , team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        , teamNameEq(condition.getTeamName())
-                        , ageGoe(condition.getAgeGoe())
-                        , ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+    // 결과 행을 DTO 목록 대신 컬럼 배열에 바로 담는다. (조회 결과 전체를 담은 중간 List 도 만들지 않는다)
+    public MemberTeamColumns search(MemberSearchCondition condition) {
+        MemberTeamColumns.Builder columns = MemberTeamColumns.builder();
+        try (Stream<Tuple> rows = predicates.withTeam(queryFactory
+                .select(member.id, member.username, member.age, predicates.teamName())
+                .from(member))
+                .where(predicates.of(condition))
+                .stream()) {
+            rows.forEach(row -> columns.add(row.get(member.id), row.get(member.username), row.get(member.age),
+                    row.get(3, String.class)));
+        }
+        return columns.build();
     }
 
     public List<Member> searchMember(MemberSearchCondition condition) {
-        return queryFactory
-                .selectFrom(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        , teamNameEq(condition.getTeamName())
-                        , ageGoe(condition.getAgeGoe())
-                        , ageLoe(condition.getAgeLoe())
-                )
+        return predicates.withTeam(queryFactory
+                .selectFrom(member))
+                .where(predicates.of(condition))
                 .fetch();
     }
 
-    private BooleanExpression ageBetween(int ageLoe, int ageGoe) {
-        return ageLoe(ageLoe).and(ageGoe(ageGoe));
-    }
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    private QMemberTeamDto memberTeamDto() {
+        return new QMemberTeamDto(
+                member.id.as("memberId")
+                , member.username
+                , member.age
+                , predicates.teamName().as("teamName")
+        );
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    private BooleanExpression ageBetween(int ageLoe, int ageGoe) {
+        return ageLoe(ageLoe).and(ageGoe(ageGoe));
     }
-
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe != null ? member.age.goe(ageGoe) : null;
     }
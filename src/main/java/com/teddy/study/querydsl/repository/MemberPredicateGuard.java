@@ -0,0 +1,157 @@
+package com.teddy.study.querydsl.repository;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.teddy.study.querydsl.config.PredicateGuardProperties;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.teddy.study.querydsl.entity.QMember.member;
+
+/**
+ * 외부에서 만든 Member 조건을 실행 전에 검사한다.
+ * - 허용한 경로와 경로별 연산자만 (인덱스가 있는 id, username, teamName, team.id 와 나머지 조건용 age)
+ * - and / or / not 중첩 깊이, 노드 수 상한
+ * - 인덱스로 좁혀지는 행 수를 추정해 상한을 넘으면 거부 (인덱스 없는 조건만 있으면 전체 행)
+ */
+public class MemberPredicateGuard {
+
+    private static final Set<String> SORTABLE = Set.of("id", "username", "teamName");
+
+    private final PredicateGuardProperties properties;
+    private final Map<String, Map<Operator, Double>> rules = new HashMap<>();
+
+    public MemberPredicateGuard(PredicateGuardProperties properties) {
+        this.properties = properties;
+
+        // 경로 -> 허용 연산자 -> 값 하나가 차지하는 행 비율 (0 이면 값 하나당 한 행, 1 이면 인덱스를 못 탄다)
+        double team = properties.getTeamSelectivity();
+        rules.put(member.id.toString(), Map.of(Ops.EQ, 0.0, Ops.IN, 0.0));
+        rules.put(member.username.toString(), Map.of(Ops.EQ, 0.0, Ops.IN, 0.0,
+                Ops.STARTS_WITH, properties.getPrefixSelectivity()));
+        rules.put(member.teamName.toString(), Map.of(Ops.EQ, team, Ops.IN, team));
+        rules.put(member.team.id.toString(), Map.of(Ops.EQ, team, Ops.IN, team));
+        rules.put(member.age.toString(), Map.of(Ops.EQ, 1.0, Ops.IN, 1.0, Ops.BETWEEN, 1.0,
+                Ops.GOE, 1.0, Ops.LOE, 1.0, Ops.GT, 1.0, Ops.LT, 1.0));
+    }
+
+    /**
+     * @param tableRows member 테이블 행 수 (추정치)
+     * @return 조건이 읽게 될 것으로 추정한 행 수
+     * @throws PredicateRejectedException 허용하지 않는 조건이거나 추정 비용이 상한을 넘을 때
+     */
+    public long check(Predicate predicate, Pageable pageable, long tableRows) {
+        if (pageable.isUnpaged() || pageable.getPageSize() > properties.getMaxPageSize()) {
+            throw new PredicateRejectedException("page size must be at most " + properties.getMaxPageSize());
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new PredicateRejectedException("sort is not allowed on " + order.getProperty());
+            }
+        }
+
+        Walk walk = new Walk(tableRows);
+        long rows = walk.rows(unwrap(predicate), 0);
+        if (rows > properties.getMaxEstimatedRows()) {
+            throw new PredicateRejectedException("predicate would read about " + rows + " rows (max "
+                    + properties.getMaxEstimatedRows() + "), add an indexed condition: " + rules.keySet());
+        }
+        return rows;
+    }
+
+    private static Expression<?> unwrap(Expression<?> expression) {
+        // 조건 없는 요청은 빈 BooleanBuilder 로 넘어온다.
+        return expression instanceof BooleanBuilder ? ((BooleanBuilder) expression).getValue() : expression;
+    }
+
+    private final class Walk {
+
+        private final long tableRows;
+        private int size;
+
+        private Walk(long tableRows) {
+            this.tableRows = Math.max(tableRows, 1);
+        }
+
+        long rows(Expression<?> expression, int depth) {
+            if (expression == null) {
+                return tableRows;
+            }
+            if (!(expression instanceof Operation)) {
+                throw new PredicateRejectedException("unsupported expression: " + expression);
+            }
+            if (depth > properties.getMaxDepth()) {
+                throw new PredicateRejectedException("predicate is nested deeper than " + properties.getMaxDepth());
+            }
+            count(1);
+
+            Operation<?> operation = (Operation<?>) expression;
+            Operator operator = operation.getOperator();
+            if (operator == Ops.AND) {
+                // 가장 잘 좁혀지는 쪽 인덱스를 탄다.
+                return Math.min(rows(unwrap(operation.getArg(0)), depth + 1), rows(unwrap(operation.getArg(1)), depth + 1));
+            }
+            if (operator == Ops.OR) {
+                long sum = rows(unwrap(operation.getArg(0)), depth + 1) + rows(unwrap(operation.getArg(1)), depth + 1);
+                return Math.min(sum, tableRows);
+            }
+            if (operator == Ops.NOT) {
+                rows(unwrap(operation.getArg(0)), depth + 1);
+                return tableRows;
+            }
+            return comparison(operation, operator);
+        }
+
+        private long comparison(Operation<?> operation, Operator operator) {
+            List<Expression<?>> args = operation.getArgs();
+            if (!(args.get(0) instanceof Path)) {
+                throw new PredicateRejectedException("unsupported expression: " + operation);
+            }
+            String path = args.get(0).toString();
+            Map<Operator, Double> operators = rules.get(path);
+            if (operators == null) {
+                throw new PredicateRejectedException("filtering on " + path + " is not allowed");
+            }
+            Double selectivity = operators.get(operator);
+            if (selectivity == null) {
+                throw new PredicateRejectedException(operator + " is not allowed on " + path + ", allowed: " + operators.keySet());
+            }
+            count(1);
+
+            long values = 0;
+            for (Expression<?> arg : args.subList(1, args.size())) {
+                if (!(arg instanceof Constant)) {
+                    throw new PredicateRejectedException("only constant values are allowed on " + path);
+                }
+                Object constant = ((Constant<?>) arg).getConstant();
+                values += constant instanceof Collection ? ((Collection<?>) constant).size() : 1;
+            }
+            count(values);
+
+            long perValue = operator == Ops.IN ? values : 1;
+            if (selectivity == 0.0) {
+                return Math.min(perValue, tableRows);
+            }
+            return Math.min((long) Math.ceil(selectivity * tableRows * perValue), tableRows);
+        }
+
+        private void count(long nodes) {
+            size += nodes;
+            if (size > properties.getMaxSize()) {
+                throw new PredicateRejectedException("predicate has more than " + properties.getMaxSize() + " nodes");
+            }
+        }
+    }
+}
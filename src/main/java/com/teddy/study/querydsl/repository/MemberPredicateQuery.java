@@ -0,0 +1,32 @@
+package com.teddy.study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.teddy.study.querydsl.config.PredicateGuardProperties;
+import com.teddy.study.querydsl.entity.Member;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link MemberRepository#findAll(Predicate, Pageable)} 를 {@link MemberPredicateGuard} 검사 후에 실행한다.
+ * 조건을 직접 만들어 넘기는 내부 호출과 /v4/members 가 같이 쓴다.
+ */
+@Component
+public class MemberPredicateQuery {
+
+    private final MemberRepository memberRepository;
+    private final MemberTableQueries tableQueries;
+    private final MemberPredicateGuard guard;
+
+    public MemberPredicateQuery(MemberRepository memberRepository, MemberTableQueries tableQueries,
+                                PredicateGuardProperties properties) {
+        this.memberRepository = memberRepository;
+        this.tableQueries = tableQueries;
+        this.guard = new MemberPredicateGuard(properties);
+    }
+
+    public Page<Member> findAll(Predicate predicate, Pageable pageable) {
+        guard.check(predicate, pageable, tableQueries.memberRowEstimate());
+        return memberRepository.findAll(predicate, pageable);
+    }
+}
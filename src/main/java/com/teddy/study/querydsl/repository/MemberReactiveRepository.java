@@ -0,0 +1,173 @@
+package com.teddy.study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.StringExpression;
+import com.querydsl.core.types.dsl.Wildcard;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLBindings;
+import com.querydsl.sql.SQLQuery;
+import com.teddy.study.querydsl.config.ConditionalOnReactiveSearch;
+import com.teddy.study.querydsl.config.ReactiveSearchProperties;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.dto.MemberTeamDto;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static com.teddy.study.querydsl.repository.sql.SMember.member;
+import static com.teddy.study.querydsl.repository.sql.STeam.team;
+
+/**
+ * MemberRepositoryImpl 의 search / searchPageComplex 를 R2DBC 로 실행한다.
+ * SQL 은 querydsl-sql 로 만들고, 결과는 구독자가 요청하는 만큼만 DB 에서 당겨 온다.
+ *
+ * 한계:
+ * - 스트림은 끝날 때까지 풀 커넥션 하나를 잡는다. 동시 스트림 수는 max-pool-size 까지이고,
+ *   넘치는 요청은 acquire-timeout 동안 기다린 뒤 실패한다. (느린 클라이언트 수천 개를 받으려면 풀도 그만큼 커야 한다)
+ * - r2dbc-h2 는 같은 JVM 안에서 동기로 실행되므로 DB 작업은 boundedElastic 스레드를 쓴다.
+ *   다만 스레드는 스트림 전체가 아니라 batch-size 행을 당겨 오는 동안만 잡힌다.
+ */
+@Repository
+@ConditionalOnReactiveSearch
+public class MemberReactiveRepository {
+
+    private final DatabaseClient databaseClient;
+    private final Configuration configuration = new Configuration(H2Templates.builder().build());
+    private final boolean denormalizedTeamName;
+    private final int batchSize;
+
+    public MemberReactiveRepository(DatabaseClient databaseClient,
+                                    @Value("${querydsl.member.denormalized-team-name:false}") boolean denormalizedTeamName,
+                                    ReactiveSearchProperties properties) {
+        this.databaseClient = databaseClient;
+        this.denormalizedTeamName = denormalizedTeamName;
+        this.batchSize = properties.getBatchSize();
+    }
+
+    public Flux<MemberTeamDto> search(MemberSearchCondition condition) {
+        SQLQuery<Tuple> query = withTeam(new SQLQuery<Void>(configuration)
+                .select(memberTeamColumns())
+                .from(member))
+                .where(searchConditions(condition));
+        return fetch(query, this::memberTeamDto);
+    }
+
+    public Mono<Page<MemberTeamDto>> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        SQLQuery<Tuple> contentQuery = withTeam(new SQLQuery<Void>(configuration)
+                .select(memberTeamColumns())
+                .from(member))
+                .where(searchConditions(condition));
+        if (pageable.isPaged()) {
+            contentQuery.offset(pageable.getOffset()).limit(pageable.getPageSize());
+        }
+
+        SQLQuery<Long> countQuery = withTeam(new SQLQuery<Void>(configuration)
+                .select(Wildcard.count)
+                .from(member))
+                .where(searchConditions(condition));
+
+        // PageableExecutionUtils.getPage 와 같은 규칙: 내용만으로 전체 건수를 알 수 있으면 count 를 생략한다.
+        return fetch(contentQuery, this::memberTeamDto)
+                .collectList()
+                .flatMap(content -> {
+                    Long total = totalFromContent(content, pageable);
+                    Mono<Long> count = total != null
+                            ? Mono.just(total)
+                            : fetch(countQuery, row -> row.get(0, Long.class)).single();
+                    return count.map(t -> new PageImpl<>(content, pageable, t));
+                });
+    }
+
+    private Long totalFromContent(List<MemberTeamDto> content, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return (long) content.size();
+        }
+        if (pageable.getPageSize() > content.size() && (pageable.getOffset() == 0 || !content.isEmpty())) {
+            return pageable.getOffset() + content.size();
+        }
+        return null;
+    }
+
+    private <T> Flux<T> fetch(SQLQuery<?> query, Function<Row, T> mapper) {
+        SQLBindings bindings = query.getSQL();
+        List<Object> params = bindings.getNullFriendlyBindings();
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(bindings.getSQL());
+        for (int i = 0; i < params.size(); i++) {
+            spec = spec.bind(i, params.get(i));
+        }
+        // H2 드라이버는 같은 JVM 안에서 문장을 동기로 실행하므로 요청 / 응답 스레드를 막지 않도록 옮긴다.
+        return spec.map((row, metadata) -> mapper.apply(row))
+                .all()
+                .subscribeOn(Schedulers.boundedElastic())
+                .limitRate(batchSize);
+    }
+
+    private Expression<?>[] memberTeamColumns() {
+        return new Expression<?>[]{member.memberId, member.username, member.age, teamName()};
+    }
+
+    private MemberTeamDto memberTeamDto(Row row) {
+        return new MemberTeamDto(row.get(0, Long.class), row.get(1, String.class), row.get(2, Integer.class), row.get(3, String.class));
+    }
+
+    // 비정규화 컬럼을 쓰면 team 조인이 필요 없다.
+    private <T> SQLQuery<T> withTeam(SQLQuery<T> query) {
+        return denormalizedTeamName ? query : query.leftJoin(team).on(member.teamId.eq(team.teamId));
+    }
+
+    private StringExpression teamName() {
+        return denormalizedTeamName ? member.teamName : team.name;
+    }
+
+    // search / searchPageComplex 의 내용, count 쿼리가 같이 쓰는 조건 (null 은 where 에서 무시된다)
+    private Predicate[] searchConditions(MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(condition.getUsername())
+                , usernameStartsWith(condition.getUsernameStartsWith())
+                , usernameContains(condition.getUsernameContains())
+                , teamNameEq(condition.getTeamName())
+                , ageGoe(condition.getAgeGoe())
+                , ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    // JPA 쪽과 달리 trigram 색인 후보 없이 like 로만 찾는다.
+    private BooleanExpression usernameStartsWith(String prefix) {
+        return StringUtils.hasText(prefix) ? member.username.startsWith(prefix) : null;
+    }
+
+    private BooleanExpression usernameContains(String text) {
+        return StringUtils.hasText(text) ? member.username.contains(text) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? teamName().eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
@@ -1,14 +1,45 @@
 package com.teddy.study.querydsl.repository;
 
+import com.querydsl.core.types.Predicate;
 import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.QMember;
+import com.teddy.study.querydsl.entity.Team;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
+import org.springframework.data.querydsl.binding.QuerydslBindings;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
+public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom,
+        QuerydslPredicateExecutor<Member>, QuerydslBinderCustomizer<QMember> {
 
     List<Member> findByUsername(String username);
+
+    // TeamMemberIterator 용 키셋 페이징
+    Slice<Member> findByTeamAndIdGreaterThanOrderByIdAsc(Team team, Long id, Pageable pageable);
+
+    /**
+     * /v4/members 의 @QuerydslPredicate 바인딩. 나열한 경로 외의 파라미터는 무시한다.
+     * 연산자와 비용 검사는 {@link MemberPredicateQuery} 가 한다.
+     */
+    @Override
+    default void customize(QuerydslBindings bindings, QMember member) {
+        bindings.excludeUnlistedProperties(true);
+        bindings.including(member.id, member.username, member.teamName, member.team.id, member.age);
+
+        // age=10&age=20 은 between (나머지 경로는 기본 바인딩: 값 하나면 eq, 여러 개면 in)
+        bindings.bind(member.age).all((path, values) -> {
+            if (values.size() == 2) {
+                return Optional.<Predicate>of(path.between(Collections.min(values), Collections.max(values)));
+            }
+            return Optional.of(values.size() == 1 ? path.eq(values.iterator().next()) : path.in(values));
+        });
+    }
 }
@@ -1,5 +1,6 @@
 package com.teddy.study.querydsl.repository;
 
+import com.teddy.study.querydsl.dto.EstimatedPage;
 import com.teddy.study.querydsl.dto.MemberSearchCondition;
 import com.teddy.study.querydsl.dto.MemberTeamDto;
 import org.springframework.data.domain.Page;
@@ -12,4 +13,7 @@ public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+    // 결과가 많으면 count(*) 대신 샘플링으로 전체 건수를 추정한다.
+    EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable);
 }
@@ -1,10 +1,13 @@
 package com.teddy.study.querydsl.repository;
 
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.Wildcard;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.teddy.study.querydsl.dto.EstimatedPage;
 import com.teddy.study.querydsl.dto.MemberSearchCondition;
 import com.teddy.study.querydsl.dto.MemberTeamDto;
 import com.teddy.study.querydsl.dto.QMemberTeamDto;
@@ -12,53 +15,46 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
-import org.springframework.util.StringUtils;
 
-import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static com.teddy.study.querydsl.entity.QMember.member;
-import static com.teddy.study.querydsl.entity.QTeam.team;
 
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
-    private final JPAQueryFactory queryFactory;
+    // 이 건수 이하면 정확히 센다.
+    private static final int EXACT_COUNT_THRESHOLD = 1_000;
+    // 추정 시 샘플링할 대략의 행 수와 구간 수
+    private static final int SAMPLE_ROWS = 10_000;
+    private static final int SAMPLE_WINDOWS = 16;
 
-    public MemberRepositoryImpl(EntityManager em) {
-        this.queryFactory = new JPAQueryFactory(em);
+    private final JPAQueryFactory queryFactory;
+    private final MemberSearchPredicates predicates;
+    private final MemberTableQueries tableQueries;
+
+    public MemberRepositoryImpl(JPAQueryFactory queryFactory,
+                                MemberSearchPredicates predicates,
+                                MemberTableQueries tableQueries) {
+        this.queryFactory = queryFactory;
+        this.predicates = predicates;
+        this.tableQueries = tableQueries;
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId")
-                        , member.username
-                        , member.age
-                        , team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        , teamNameEq(condition.getTeamName())
-                        , ageGoe(condition.getAgeGoe())
-                        , ageLoe(condition.getAgeLoe())
-                )
+        return predicates.withTeam(queryFactory
+                .select(memberTeamDto())
+                .from(member))
+                .where(predicates.of(condition))
                 .fetch();
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId")
-                        , member.username
-                        , member.age
-                        , team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
+        QueryResults<MemberTeamDto> results = predicates.withTeam(queryFactory
+                .select(memberTeamDto())
+                .from(member))
 //                .where(
 //                        usernameEq(condition.getUsername())
 //                        , teamNameEq(condition.getTeamName())
@@ -74,35 +70,18 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId")
-                        , member.username
-                        , member.age
-                        , team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        , teamNameEq(condition.getTeamName())
-                        , ageGoe(condition.getAgeGoe())
-                        , ageLoe(condition.getAgeLoe())
-                )
+        List<MemberTeamDto> results = predicates.withTeam(queryFactory
+                .select(memberTeamDto())
+                .from(member))
+                .where(predicates.of(condition))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
 
-        JPAQuery<Long> countQuery = queryFactory
+        JPAQuery<Long> countQuery = predicates.withTeam(queryFactory
                 .select(Wildcard.count)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        , teamNameEq(condition.getTeamName())
-                        , ageGoe(condition.getAgeGoe())
-                        , ageLoe(condition.getAgeLoe())
-                );
+                .from(member))
+                .where(predicates.of(condition));
 
 //                .fetchCount() // 4.x 사용
 //                .fetch()
@@ -113,20 +92,107 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return PageableExecutionUtils.getPage(results, pageable, () -> countQuery.fetch().get(0));
     }
 
+    @Override
+    public EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> results = predicates.withTeam(queryFactory
+                .select(memberTeamDto())
+                .from(member))
+                .where(predicates.of(condition))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        // id 를 threshold + 1 건까지만 읽어 보고, 넘지 않으면 그게 정확한 건수
+        List<Long> probe = predicates.withTeam(queryFactory
+                .select(member.id)
+                .from(member))
+                .where(predicates.of(condition))
+                .limit(EXACT_COUNT_THRESHOLD + 1)
+                .fetch();
 
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+        if (probe.size() <= EXACT_COUNT_THRESHOLD) {
+            return EstimatedPage.exact(results, pageable, probe.size());
+        }
+        return estimatePage(results, pageable, condition);
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    private EstimatedPage<MemberTeamDto> estimatePage(List<MemberTeamDto> results, Pageable pageable, MemberSearchCondition condition) {
+        long tableRows = tableQueries.memberRowEstimate();
+        long lowerBound = Math.max(EXACT_COUNT_THRESHOLD + 1, pageable.getOffset() + results.size());
+
+        Predicate filter = ExpressionUtils.allOf(predicates.of(condition));
+        if (filter == null) {
+            // 조건이 없으면 테이블 통계값이 곧 추정값
+            return new EstimatedPage<>(results, pageable, Math.max(tableRows, lowerBound), false, 0);
+        }
+
+        Long minId = queryFactory.select(member.id.min()).from(member).fetchOne();
+        Long maxId = queryFactory.select(member.id.max()).from(member).fetchOne();
+        if (minId == null || maxId == null) {
+            // probe 이후에 모두 지워졌다.
+            return EstimatedPage.exact(results, pageable, pageable.getOffset() + results.size());
+        }
+
+        BooleanBuilder windows = sampleWindows(minId, maxId, tableRows);
+        if (windows == null) {
+            // 표본 구간이 id 범위 전체를 덮으면 추정할 필요 없이 그대로 센 값이 정확한 건수
+            Long total = predicates.withTeam(queryFactory
+                    .select(Wildcard.count)
+                    .from(member))
+                    .where(filter)
+                    .fetchOne();
+            return EstimatedPage.exact(results, pageable, total == null ? 0 : total);
+        }
+
+        Long sampled = queryFactory
+                .select(Wildcard.count)
+                .from(member)
+                .where(windows)
+                .fetchOne();
+        Long matched = predicates.withTeam(queryFactory
+                .select(Wildcard.count)
+                .from(member))
+                .where(windows, filter)
+                .fetchOne();
+
+        if (sampled == 0) {
+            return new EstimatedPage<>(results, pageable, lowerBound, false, Math.max(tableRows - lowerBound, 0));
+        }
+
+        // 샘플 비율 p 의 95% 신뢰구간으로 오차 범위를 계산 (일치 0건이면 rule of three)
+        double p = (double) matched / sampled;
+        double margin = matched == 0 ? 3.0 / sampled : 1.96 * Math.sqrt(p * (1 - p) / sampled);
+        long estimate = Math.max(Math.round(p * tableRows), lowerBound);
+        long errorBound = Math.round(margin * tableRows);
+
+        return new EstimatedPage<>(results, pageable, estimate, false, errorBound);
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    // member_id 범위를 SAMPLE_WINDOWS 개로 나누고, 각 구간 안에서 임의의 연속 id 구간을 하나씩 고른다. (층화 샘플링)
+    // 구간들이 범위 전체를 덮게 되면 null (표본이 아니라 전수)
+    private BooleanBuilder sampleWindows(long minId, long maxId, long tableRows) {
+        long idSpan = maxId - minId + 1;
+        double density = Math.max(Math.min(1.0, (double) tableRows / idSpan), 1e-9);
+        long windowIds = Math.max(1, (long) (SAMPLE_ROWS / (double) SAMPLE_WINDOWS / density));
+        long stratum = idSpan / SAMPLE_WINDOWS;
+
+        if (stratum <= windowIds) {
+            return null;
+        }
+        BooleanBuilder windows = new BooleanBuilder();
+        for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+            long start = minId + i * stratum + ThreadLocalRandom.current().nextLong(stratum - windowIds + 1);
+            windows.or(member.id.between(start, start + windowIds - 1));
+        }
+        return windows;
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    private QMemberTeamDto memberTeamDto() {
+        return new QMemberTeamDto(
+                member.id.as("memberId")
+                , member.username
+                , member.age
+                , predicates.teamName().as("teamName")
+        );
     }
 }
@@ -0,0 +1,76 @@
+package com.teddy.study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.StringExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.teddy.study.querydsl.cache.UsernameNgramIndex;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import static com.teddy.study.querydsl.entity.QMember.member;
+import static com.teddy.study.querydsl.entity.QTeam.team;
+
+/**
+ * JPA 쪽 회원 검색 / 내보내기 (MemberRepositoryImpl, MemberJpaRepository, MemberExporter) 가 같이 쓰는 조건과 팀 이름 조인.
+ * startsWith / contains 는 {@link UsernameNgramIndex} 후보로 좁힌다.
+ */
+@Component
+public class MemberSearchPredicates {
+
+    private final UsernameNgramIndex usernameIndex;
+    private final boolean denormalizedTeamName;
+
+    public MemberSearchPredicates(UsernameNgramIndex usernameIndex,
+                                  @Value("${querydsl.member.denormalized-team-name:false}") boolean denormalizedTeamName) {
+        this.usernameIndex = usernameIndex;
+        this.denormalizedTeamName = denormalizedTeamName;
+    }
+
+    // 내용, count 쿼리가 같이 쓰는 조건 (null 은 where 에서 무시된다)
+    public Predicate[] of(MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(condition.getUsername())
+                , usernameStartsWith(condition.getUsernameStartsWith())
+                , usernameContains(condition.getUsernameContains())
+                , teamNameEq(condition.getTeamName())
+                , ageGoe(condition.getAgeGoe())
+                , ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    public BooleanExpression usernameStartsWith(String prefix) {
+        return usernameIndex.usernameStartsWith(prefix);
+    }
+
+    public BooleanExpression usernameContains(String text) {
+        return usernameIndex.usernameContains(text);
+    }
+
+    public StringExpression teamName() {
+        return denormalizedTeamName ? member.teamName : team.name;
+    }
+
+    // 비정규화 컬럼을 쓰면 team 조인이 필요 없다. (teamName() 을 쓰는 쿼리는 이것으로 from 을 감싼다)
+    public <T> JPAQuery<T> withTeam(JPAQuery<T> query) {
+        return denormalizedTeamName ? query : query.leftJoin(member.team, team);
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? teamName().eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
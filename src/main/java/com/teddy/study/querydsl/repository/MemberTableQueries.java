@@ -0,0 +1,49 @@
+package com.teddy.study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.teddy.study.querydsl.entity.Team;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+
+import static com.teddy.study.querydsl.entity.QMember.member;
+
+/**
+ * 리포지토리 패키지 안에서만 쓰는 member 테이블 쿼리.
+ * 영속성 컨텍스트를 거치지 않는 벌크 update 와 H2 전용 통계 조회라 {@link MemberRepository} 로 공개하지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+class MemberTableQueries {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    // H2 가 관리하는 member 테이블 행 수 통계 (정확하지 않다)
+    long memberRowEstimate() {
+        Number rows = (Number) em.createNativeQuery(
+                "select ROW_COUNT_ESTIMATE from INFORMATION_SCHEMA.TABLES"
+                        + " where TABLE_SCHEMA = 'PUBLIC' and TABLE_NAME = 'MEMBER'")
+                .getSingleResult();
+        return rows.longValue();
+    }
+
+    // Member.teamName 비정규화 컬럼을 팀의 현재 이름으로 맞춘다. (벌크 update, TeamNamePropagationJob 만 부른다)
+    long syncTeamName(Team target) {
+        String name = target.getName();
+        // 팀 이름은 null 일 수 있다. (ne(null) 은 Querydsl 이 거부한다)
+        BooleanExpression stale = name == null
+                ? member.teamName.isNotNull()
+                : member.teamName.isNull().or(member.teamName.ne(name));
+        return queryFactory
+                .update(member)
+                .set(member.teamName, name)
+                .where(
+                        member.team.eq(target)
+                        , stale
+                )
+                .execute();
+    }
+}
@@ -0,0 +1,11 @@
+package com.teddy.study.querydsl.repository;
+
+/**
+ * {@link MemberPredicateGuard} 가 실행을 거부한 조건
+ */
+public class PredicateRejectedException extends RuntimeException {
+
+    public PredicateRejectedException(String message) {
+        super(message);
+    }
+}
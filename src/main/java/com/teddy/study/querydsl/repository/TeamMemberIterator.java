@@ -0,0 +1,55 @@
+package com.teddy.study.querydsl.repository;
+
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 팀 멤버를 member_id 순서로 pageSize 개씩 읽는다. Team.members 를 초기화하지 않는다.
+ * offset 대신 마지막 id 이후를 조회하므로 뒤쪽 페이지도 비용이 같다.
+ */
+public class TeamMemberIterator implements Iterator<List<Member>> {
+
+    private final MemberRepository memberRepository;
+    private final Team team;
+    private final int pageSize;
+
+    private Long lastMemberId = 0L;
+    private Slice<Member> next;
+    private boolean finished;
+
+    public TeamMemberIterator(MemberRepository memberRepository, Team team, int pageSize) {
+        this.memberRepository = memberRepository;
+        this.team = team;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = memberRepository.findByTeamAndIdGreaterThanOrderByIdAsc(team, lastMemberId, PageRequest.of(0, pageSize));
+            if (!next.hasContent()) {
+                next = null;
+                finished = true;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public List<Member> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<Member> page = next.getContent();
+        lastMemberId = page.get(page.size() - 1).getId();
+        finished = !next.hasNext();
+        next = null;
+        return page;
+    }
+}
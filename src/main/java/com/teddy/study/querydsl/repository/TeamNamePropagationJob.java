@@ -0,0 +1,69 @@
+package com.teddy.study.querydsl.repository;
+
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 팀 이름이 바뀌면 Member.teamName 비정규화 컬럼에 벌크 update 로 전파한다.
+ * 호출한 쪽 트랜잭션에 참여할 수 있으므로 영속성 컨텍스트를 비우지 않고, 이미 올라와 있는 회원만 다시 읽는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamNamePropagationJob {
+
+    private final EntityManager em;
+    private final MemberTableQueries tableQueries;
+
+    @Transactional
+    public long rename(Long teamId, String newName) {
+        Team team = em.find(Team.class, teamId);
+        if (team == null) {
+            throw new IllegalArgumentException("team not found: " + teamId);
+        }
+        team.changeName(newName);
+        em.flush();
+
+        long updated = tableQueries.syncTeamName(team);
+
+        refreshLoadedMembers(member -> member.getTeam() != null && teamId.equals(member.getTeam().getId()));
+        return updated;
+    }
+
+    /**
+     * 모든 팀 기준으로 다시 맞춘다. 컬럼 도입 전 데이터 백필이나 벌크 쓰기로 어긋난 값 보정용.
+     */
+    @Transactional
+    public long propagateAll() {
+        em.flush();
+
+        List<Team> teams = em.createQuery("select t from Team t", Team.class).getResultList();
+        long updated = 0;
+        for (Team team : teams) {
+            updated += tableQueries.syncTeamName(team);
+        }
+
+        refreshLoadedMembers(member -> member.getTeam() != null);
+        return updated;
+    }
+
+    // 벌크 update 는 영속성 컨텍스트를 거치지 않는다. 바로 앞에서 flush 했으므로 다시 읽어도 잃는 변경이 없고,
+    // 예전 teamName 을 가진 회원이 나중에 flush 되며 값을 되돌리지도 않는다.
+    private void refreshLoadedMembers(Predicate<Member> affected) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member && affected.test((Member) entry.getKey())) {
+                em.refresh(entry.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.teddy.study.querydsl.repository.sql;
+
+import com.querydsl.core.types.PathMetadataFactory;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+/**
+ * querydsl-sql 용 member 테이블 메타 모델. (JPA 엔티티 Member 의 물리 이름과 맞춘다)
+ */
+public class SMember extends RelationalPathBase<SMember> {
+
+    public static final SMember member = new SMember("m");
+
+    public final NumberPath<Long> memberId = createNumber("memberId", Long.class);
+    public final StringPath username = createString("username");
+    public final NumberPath<Integer> age = createNumber("age", Integer.class);
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+    public final StringPath teamName = createString("teamName");
+
+    public SMember(String variable) {
+        super(SMember.class, PathMetadataFactory.forVariable(variable), "PUBLIC", "MEMBER");
+        addMetadata(memberId, ColumnMetadata.named("MEMBER_ID").withIndex(1).ofType(Types.BIGINT).notNull());
+        addMetadata(username, ColumnMetadata.named("USERNAME").withIndex(2).ofType(Types.VARCHAR));
+        addMetadata(age, ColumnMetadata.named("AGE").withIndex(3).ofType(Types.INTEGER).notNull());
+        addMetadata(teamId, ColumnMetadata.named("TEAM_ID").withIndex(4).ofType(Types.BIGINT));
+        addMetadata(teamName, ColumnMetadata.named("TEAM_NAME").withIndex(5).ofType(Types.VARCHAR));
+    }
+}
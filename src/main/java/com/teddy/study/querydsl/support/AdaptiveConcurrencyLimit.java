@@ -0,0 +1,117 @@
+package com.teddy.study.querydsl.support;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD 방식의 동시 실행 한도.
+ * 응답이 latencyThreshold 안에 끝나면 한도를 조금씩(1 / limit) 올리고, 넘기거나 실패하면 backoffRatio 배로 줄인다.
+ * 줄이는 것은 backoffWindow 에 한 번뿐이다. 과부하 때는 이미 받아 둔 요청들이 한꺼번에 느리게 끝나므로
+ * 응답마다 줄이면 한 번의 지연 급증으로 한도가 minLimit 까지 떨어진다.
+ * 비싼 요청은 한도의 expensiveShare 비율까지만 받는다.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final double expensiveShare;
+    private final long backoffWindowNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger expensiveInFlight = new AtomicInteger();
+    // double 한도를 CAS 로 갱신하기 위해 비트로 저장
+    private final AtomicLong limitBits;
+    private final AtomicLong lastBackoffNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos,
+                                    double backoffRatio, long backoffWindowNanos, double expensiveShare) {
+        this(initialLimit, minLimit, maxLimit, latencyThresholdNanos, backoffRatio, backoffWindowNanos, expensiveShare,
+                System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos,
+                             double backoffRatio, long backoffWindowNanos, double expensiveShare, LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.expensiveShare = expensiveShare;
+        this.backoffWindowNanos = backoffWindowNanos;
+        this.nanoClock = nanoClock;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        // 첫 과부하 신호에는 바로 줄인다.
+        this.lastBackoffNanos = new AtomicLong(nanoClock.getAsLong() - backoffWindowNanos);
+    }
+
+    public boolean tryAcquire(boolean expensive) {
+        int limit = getLimit();
+        if (expensive && !tryIncrement(expensiveInFlight, Math.max(1, (int) (limit * expensiveShare)))) {
+            return false;
+        }
+        if (!tryIncrement(inFlight, limit)) {
+            if (expensive) {
+                expensiveInFlight.decrementAndGet();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    public void release(boolean expensive, long elapsedNanos, boolean failed) {
+        int current = inFlight.getAndDecrement();
+        if (expensive) {
+            expensiveInFlight.decrementAndGet();
+        }
+
+        if (failed || elapsedNanos > latencyThresholdNanos) {
+            backoff();
+        } else if (current * 2 >= getLimit()) {
+            // 한도를 절반 이상 쓰고 있을 때만 늘린다. 한가할 때 한도가 무한히 커지는 것을 막는다.
+            updateLimit(limit -> Math.min(maxLimit, limit + 1 / limit));
+        }
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void backoff() {
+        long now = nanoClock.getAsLong();
+        long last = lastBackoffNanos.get();
+        // 동시에 들어온 느린 응답 중 하나만 줄인다.
+        if (now - last >= backoffWindowNanos && lastBackoffNanos.compareAndSet(last, now)) {
+            updateLimit(limit -> Math.max(minLimit, limit * backoffRatio));
+        }
+    }
+
+    private boolean tryIncrement(AtomicInteger counter, int max) {
+        while (true) {
+            int current = counter.get();
+            if (current >= max) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void updateLimit(DoubleUnaryOperator update) {
+        while (true) {
+            long current = limitBits.get();
+            double next = update.applyAsDouble(Double.longBitsToDouble(current));
+            if (limitBits.compareAndSet(current, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+}
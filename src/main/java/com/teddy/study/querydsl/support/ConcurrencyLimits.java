@@ -0,0 +1,29 @@
+package com.teddy.study.querydsl.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 엔드포인트별 {@link AdaptiveConcurrencyLimit}. 한도를 끄면 비어 있다.
+ * 요청 인터셉터와, 요청 밖에서 같은 엔드포인트의 조회를 실행하는 쪽(미리 읽기)이 같은 한도를 나눠 쓴다.
+ */
+public class ConcurrencyLimits {
+
+    private final Map<String, AdaptiveConcurrencyLimit> limits;
+
+    public ConcurrencyLimits(Map<String, AdaptiveConcurrencyLimit> limits) {
+        this.limits = Collections.unmodifiableMap(new LinkedHashMap<>(limits));
+    }
+
+    /**
+     * 한도가 없는 엔드포인트면 null.
+     */
+    public AdaptiveConcurrencyLimit get(String endpoint) {
+        return limits.get(endpoint);
+    }
+
+    public Map<String, AdaptiveConcurrencyLimit> asMap() {
+        return limits;
+    }
+}
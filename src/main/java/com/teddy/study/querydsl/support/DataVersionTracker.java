@@ -0,0 +1,53 @@
+package com.teddy.study.querydsl.support;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member / Team 테이블에 쓰기가 발생할 때마다 증가하는 데이터 버전.
+ * 쓰기 시점과 트랜잭션 종료 시점에 모두 증가시켜, 커밋 전에 읽힌 응답이 커밋 후에도 같은 버전으로 남지 않게 한다.
+ */
+@Component
+public class DataVersionTracker {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * 다른 노드의 쓰기를 반영한다. Lamport 시계처럼 max(local + 1, remote) 로 올린다.
+     * 로컬 버전이 이미 받은 버전 이상이어도 반드시 증가해야, 그 전에 만든 ETag / 캐시 항목이 무효가 된다.
+     */
+    public void advanceTo(long remoteVersion) {
+        version.accumulateAndGet(remoteVersion, (local, remote) -> Math.max(local + 1, remote));
+    }
+
+    /**
+     * 현재 트랜잭션이 추적 테이블에 쓴 적이 있는지. 커밋 전 데이터로 계산한 값을 다른 요청과 공유하지 않는 데 쓴다.
+     */
+    public boolean isWrittenInCurrentTransaction() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+
+        // 트랜잭션당 한 번만 커밋/롤백 후 증가를 등록
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DataVersionTracker.this);
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+}
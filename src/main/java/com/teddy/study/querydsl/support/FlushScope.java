@@ -0,0 +1,28 @@
+package com.teddy.study.querydsl.support;
+
+/**
+ * 현재 스레드가 Hibernate flush(엔티티 insert / update / delete 실행) 중인지 알려준다.
+ * flush 밖에서 실행되는 member / team 쓰기는 querydsl update / delete 같은 벌크 연산이다.
+ */
+public final class FlushScope {
+
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private FlushScope() {
+    }
+
+    public static boolean inFlush() {
+        return DEPTH.get()[0] > 0;
+    }
+
+    static void enter() {
+        DEPTH.get()[0]++;
+    }
+
+    static void exit() {
+        int[] depth = DEPTH.get();
+        if (--depth[0] <= 0) {
+            DEPTH.remove();
+        }
+    }
+}
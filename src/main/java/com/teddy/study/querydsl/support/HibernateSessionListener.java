@@ -0,0 +1,32 @@
+package com.teddy.study.querydsl.support;
+
+import com.teddy.study.querydsl.monitoring.QueryTimingSessionListener;
+
+/**
+ * hibernate.session.events.auto 는 클래스 하나만 받으므로, 모든 세션에 붙일 리스너를 여기서 모은다.
+ * - JDBC 구간 측정: {@link QueryTimingSessionListener}
+ * - flush 구간 표시: {@link FlushScope}
+ */
+public class HibernateSessionListener extends QueryTimingSessionListener {
+
+    @Override
+    public void flushStart() {
+        FlushScope.enter();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        FlushScope.exit();
+    }
+
+    // 쿼리 전 자동 flush
+    @Override
+    public void partialFlushStart() {
+        FlushScope.enter();
+    }
+
+    @Override
+    public void partialFlushEnd(int numberOfEntities, int numberOfCollections) {
+        FlushScope.exit();
+    }
+}
@@ -0,0 +1,92 @@
+package com.teddy.study.querydsl.support;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.NonUniqueResultException;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryResults;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 실행 직전에 {@link SubqueryHoister} 로 스칼라 서브쿼리를 값으로 바꾼 사본을 실행한다.
+ * 원래 쿼리 객체는 바꾸지 않으므로 다시 실행하면 그때의 값으로 다시 바꾼다.
+ */
+public class HoistingJPAQuery<T> extends JPAQuery<T> {
+
+    private final EntityManager em;
+    private final JPQLTemplates templates;
+    // 이미 바꾼 사본이면 null
+    @Nullable
+    private final SubqueryHoister hoister;
+
+    public HoistingJPAQuery(EntityManager em, JPQLTemplates templates, SubqueryHoister hoister) {
+        super(em, templates);
+        this.em = em;
+        this.templates = templates;
+        this.hoister = hoister;
+    }
+
+    private HoistingJPAQuery(EntityManager em, JPQLTemplates templates, QueryMetadata metadata) {
+        super(em, templates, metadata);
+        this.em = em;
+        this.templates = templates;
+        this.hoister = null;
+    }
+
+    @Nullable
+    private HoistingJPAQuery<T> hoisted() {
+        if (hoister == null) {
+            return null;
+        }
+        QueryMetadata metadata = hoister.hoist(getMetadata(), em, templates);
+        if (metadata == getMetadata()) {
+            return null;
+        }
+        HoistingJPAQuery<T> query = new HoistingJPAQuery<>(em, templates, metadata);
+        // lock mode, flush mode, hint 복사
+        query.clone(this);
+        return query;
+    }
+
+    @Override
+    public List<T> fetch() {
+        HoistingJPAQuery<T> hoisted = hoisted();
+        return hoisted == null ? super.fetch() : hoisted.fetch();
+    }
+
+    @Nullable
+    @Override
+    public T fetchOne() throws NonUniqueResultException {
+        HoistingJPAQuery<T> hoisted = hoisted();
+        return hoisted == null ? super.fetchOne() : hoisted.fetchOne();
+    }
+
+    @Override
+    public QueryResults<T> fetchResults() {
+        HoistingJPAQuery<T> hoisted = hoisted();
+        return hoisted == null ? super.fetchResults() : hoisted.fetchResults();
+    }
+
+    @Override
+    public long fetchCount() {
+        HoistingJPAQuery<T> hoisted = hoisted();
+        return hoisted == null ? super.fetchCount() : hoisted.fetchCount();
+    }
+
+    @Override
+    public CloseableIterator<T> iterate() {
+        HoistingJPAQuery<T> hoisted = hoisted();
+        return hoisted == null ? super.iterate() : hoisted.iterate();
+    }
+
+    @Override
+    public Stream<T> stream() {
+        HoistingJPAQuery<T> hoisted = hoisted();
+        return hoisted == null ? super.stream() : hoisted.stream();
+    }
+}
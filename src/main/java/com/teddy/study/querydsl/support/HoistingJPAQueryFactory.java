@@ -0,0 +1,29 @@
+package com.teddy.study.querydsl.support;
+
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 만든 쿼리가 실행될 때 바깥 쿼리와 상관없는 스칼라 서브쿼리를 먼저 계산해 바인드 값으로 넣는 {@link JPAQueryFactory}.
+ *
+ * @see SubqueryHoister
+ */
+public class HoistingJPAQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager em;
+    private final SubqueryHoister hoister;
+
+    public HoistingJPAQueryFactory(EntityManager em, SubqueryHoister hoister) {
+        super(em);
+        this.em = em;
+        this.hoister = hoister;
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        return new HoistingJPAQuery<Void>(em, JPAProvider.getTemplates(em), hoister);
+    }
+}
@@ -0,0 +1,26 @@
+package com.teddy.study.querydsl.support;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 현재 트랜잭션의 영속성 컨텍스트에 아직 flush 되지 않은 변경이 있을 수 있는지를 dirty check 없이 어림한다.
+ * 읽기 전용 트랜잭션이거나 읽기 전용이 아닌 엔티티가 하나도 없으면 변경이 있을 수 없다.
+ */
+public final class PendingChanges {
+
+    private PendingChanges() {
+    }
+
+    public static boolean possible(EntityManagerFactory entityManagerFactory) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        return em != null && em.unwrap(SessionImplementor.class).getPersistenceContextInternal().hasNonReadOnlyEntities();
+    }
+}
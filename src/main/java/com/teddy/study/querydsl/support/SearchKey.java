@@ -0,0 +1,48 @@
+package com.teddy.study.querydsl.support;
+
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.StringUtils;
+
+/**
+ * 검색 조건과 페이지 정보를 하나의 정규화된 문자열로 만든다.
+ * 리포지토리와 같은 규칙(빈 문자열 = 조건 없음)을 따르므로, 같은 결과를 내는 요청은 같은 키를 가진다.
+ */
+public final class SearchKey {
+
+    private SearchKey() {
+    }
+
+    public static String of(MemberSearchCondition condition) {
+        return of(condition, Pageable.unpaged());
+    }
+
+    public static String of(MemberSearchCondition condition, Pageable pageable) {
+        StringBuilder key = new StringBuilder(64);
+        if (condition != null) {
+            append(key, "u", StringUtils.hasText(condition.getUsername()) ? condition.getUsername() : null);
+            append(key, "us", StringUtils.hasText(condition.getUsernameStartsWith()) ? condition.getUsernameStartsWith() : null);
+            append(key, "uc", StringUtils.hasText(condition.getUsernameContains()) ? condition.getUsernameContains() : null);
+            append(key, "t", StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null);
+            append(key, "goe", condition.getAgeGoe());
+            append(key, "loe", condition.getAgeLoe());
+        }
+        if (pageable != null && pageable.isPaged()) {
+            append(key, "p", pageable.getPageNumber());
+            append(key, "s", pageable.getPageSize());
+            if (pageable.getSort().isSorted()) {
+                append(key, "o", pageable.getSort().toString());
+            }
+        }
+        return key.toString();
+    }
+
+    private static void append(StringBuilder key, String name, Object value) {
+        if (value == null) {
+            return;
+        }
+        // 값에 구분자가 들어가도 충돌하지 않도록 길이를 앞에 붙인다.
+        String text = value.toString();
+        key.append(name).append(text.length()).append(':').append(text).append(';');
+    }
+}
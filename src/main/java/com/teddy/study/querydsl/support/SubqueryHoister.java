@@ -0,0 +1,529 @@
+package com.teddy.study.querydsl.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.support.ReplaceVisitor;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.ConstantImpl;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.SubQueryExpressionImpl;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.util.MathUtils;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 바깥 쿼리를 참조하지 않는 스칼라 서브쿼리(select max(age) from Member 같은)를 먼저 한 번 실행하고,
+ * 결과를 바인드 파라미터로 바꿔 넣는다. DB 가 서브쿼리를 행마다 다시 계산하지 않게 된다.
+ *
+ * - where / having / join on 에서 비교, 산술 연산의 피연산자로 쓰인 서브쿼리만 바꾼다. (in, exists 는 그대로)
+ * - select 절의 서브쿼리는 SQL 에 상수 자리표시를 두고 결과를 만들 때 값을 채운다. (Hibernate 는 select 절 파라미터를 허용하지 않는다)
+ * - 결과가 한 행이 아니거나 null 이면 그대로 둔다.
+ * - 값은 비교 / 연산 상대 피연산자의 타입으로 바꿔 바인드한다. 값이 바뀌면(avg 가 정수가 아니면 등) 그대로 둔다.
+ * - Member / Team 만 읽는 서브쿼리 결과는 {@link DataVersionTracker} 버전이 바뀔 때까지 재사용한다. (최대 cacheMaxEntries 개, LRU)
+ */
+@Component
+public class SubqueryHoister {
+
+    // 이 연산자들의 피연산자 자리에서는 스칼라 값만 올 수 있다.
+    private static final Set<Operator> SCALAR_OPERATORS = Set.of(Ops.EQ, Ops.NE, Ops.LT, Ops.GT, Ops.LOE, Ops.GOE,
+            Ops.BETWEEN, Ops.ADD, Ops.SUB, Ops.MULT, Ops.DIV);
+    private static final Set<Class<?>> TRACKED_ENTITIES = Set.of(Member.class, Team.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final DataVersionTracker dataVersionTracker;
+    private final int cacheMaxEntries;
+    private final Map<String, Memo> cache;
+    // access-order LinkedHashMap 은 get 도 순서를 바꾸므로 조회도 락 안에서
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter uncached;
+
+    public SubqueryHoister(EntityManagerFactory entityManagerFactory, DataVersionTracker dataVersionTracker,
+                           @Value("${querydsl.subquery-hoisting.cache-max-entries:256}") int cacheMaxEntries,
+                           MeterRegistry meterRegistry) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataVersionTracker = dataVersionTracker;
+        this.cacheMaxEntries = cacheMaxEntries;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Memo> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
+        this.hits = hoisted(meterRegistry, "hit");
+        this.misses = hoisted(meterRegistry, "miss");
+        this.uncached = hoisted(meterRegistry, "uncached");
+    }
+
+    private static Counter hoisted(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("querydsl.subquery.hoisted")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return 서브쿼리를 값으로 바꾼 메타데이터, 바꿀 것이 없으면 인자로 받은 metadata 그대로
+     */
+    public QueryMetadata hoist(QueryMetadata metadata, EntityManager em, JPQLTemplates templates) {
+        if (!SubQueryFinder.contains(metadata)) {
+            return metadata;
+        }
+        Rewriter rewriter = new Rewriter(em, templates);
+        QueryMetadata rewritten = rewriter.rewrite(metadata);
+        return rewriter.changed ? rewritten : metadata;
+    }
+
+    public void clearCache() {
+        cacheLock.lock();
+        try {
+            cache.clear();
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    public int cacheSize() {
+        cacheLock.lock();
+        try {
+            return cache.size();
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    @Nullable
+    private Object evaluate(SubQueryExpression<?> subQuery, EntityManager em, JPQLTemplates templates) {
+        Roots roots = new Roots();
+        subQuery.accept(roots, null);
+        if (roots.hasParams || !roots.declared.containsAll(roots.used)) {
+            // 바깥 쿼리를 참조(상관 서브쿼리)하거나 파라미터가 있다.
+            return null;
+        }
+
+        if (!cacheable(roots)) {
+            uncached.increment();
+            return fetchScalar(subQuery, em, templates);
+        }
+
+        String key = key(subQuery, em, templates);
+        long version = dataVersionTracker.current();
+        Memo memo = cached(key);
+        if (memo != null && memo.version == version) {
+            hits.increment();
+            return memo.value;
+        }
+
+        misses.increment();
+        Object value = fetchScalar(subQuery, em, templates);
+        if (value != null && version == dataVersionTracker.current()) {
+            cacheLock.lock();
+            try {
+                cache.put(key, new Memo(version, value));
+            } finally {
+                cacheLock.unlock();
+            }
+        }
+        return value;
+    }
+
+    @Nullable
+    private Memo cached(String key) {
+        cacheLock.lock();
+        try {
+            return cache.get(key);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    // 커밋 전 데이터로 계산한 값은 캐시에 넣지도, 캐시에서 꺼내지도 않는다.
+    // flush 된 쓰기는 DataVersionTracker 가, flush 전 변경은 PendingChanges 가 (dirty check 없이) 가늠한다.
+    private boolean cacheable(Roots roots) {
+        if (cacheMaxEntries <= 0 || dataVersionTracker.isWrittenInCurrentTransaction()) {
+            return false;
+        }
+        for (Path<?> root : roots.declared) {
+            if (!TRACKED_ENTITIES.contains(root.getType())) {
+                return false;
+            }
+        }
+        return !PendingChanges.possible(entityManagerFactory);
+    }
+
+    private String key(SubQueryExpression<?> subQuery, EntityManager em, JPQLTemplates templates) {
+        JPQLSerializer serializer = new JPQLSerializer(templates, em);
+        serializer.serialize(subQuery.getMetadata(), false, null);
+        return serializer + "|" + serializer.getConstants();
+    }
+
+    @Nullable
+    private Object fetchScalar(SubQueryExpression<?> subQuery, EntityManager em, JPQLTemplates templates) {
+        QueryMetadata metadata = subQuery.getMetadata().clone();
+        metadata.setModifiers(new QueryModifiers(2L, null));
+        List<?> rows = new JPAQuery<>(em, templates, metadata).fetch();
+        return rows.size() == 1 ? rows.get(0) : null;
+    }
+
+    // 서브쿼리 값을 상대 피연산자 타입으로 바꾼다. 정확히 바뀌지 않으면 null (Hibernate 는 타입이 다른 파라미터를 거부한다)
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static Object coerce(Object value, Class<?> type) {
+        if (type.isInstance(value)) {
+            return value;
+        }
+        if (!(value instanceof Number) || !Number.class.isAssignableFrom(type)) {
+            return null;
+        }
+        BigDecimal exact = decimal((Number) value);
+        if (exact == null) {
+            return null;
+        }
+        Number converted;
+        try {
+            converted = MathUtils.cast((Number) value, (Class<Number>) type);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        BigDecimal back = decimal(converted);
+        return back != null && exact.compareTo(back) == 0 ? converted : null;
+    }
+
+    @Nullable
+    private static BigDecimal decimal(Number number) {
+        if ((number instanceof Double || number instanceof Float) && !Double.isFinite(number.doubleValue())) {
+            return null;
+        }
+        return new BigDecimal(number.toString());
+    }
+
+    // context: 스칼라 자리면 상대 피연산자 타입, 아니면 null
+    private final class Rewriter extends ReplaceVisitor<Class<?>> {
+
+        private final EntityManager em;
+        private final JPQLTemplates templates;
+        private boolean changed;
+
+        private Rewriter(EntityManager em, JPQLTemplates templates) {
+            this.em = em;
+            this.templates = templates;
+        }
+
+        QueryMetadata rewrite(QueryMetadata metadata) {
+            // select 절은 따로 처리한다.
+            QueryMetadata withoutProjection = metadata.clone();
+            withoutProjection.setProjection(null);
+            QueryMetadata rewritten = ((SubQueryExpression<?>) super.visit(
+                    new SubQueryExpressionImpl<>(Object.class, withoutProjection), null)).getMetadata();
+            rewritten.setProjection(projection(metadata.getProjection()));
+            rewritten.setValidate(false);
+            return rewritten;
+        }
+
+        @Override
+        public Expression<?> visit(Operation<?> expr, @Nullable Class<?> operandType) {
+            Class<?> argType = SCALAR_OPERATORS.contains(expr.getOperator()) ? operandType(expr) : null;
+            List<Expression<?>> args = new ArrayList<>(expr.getArgs().size());
+            for (Expression<?> arg : expr.getArgs()) {
+                args.add(arg.accept(this, argType));
+            }
+            if (args.equals(expr.getArgs())) {
+                return expr;
+            }
+            if (expr instanceof Predicate) {
+                return ExpressionUtils.predicate(expr.getOperator(), args.toArray(new Expression[0]));
+            }
+            return ExpressionUtils.operation(expr.getType(), expr.getOperator(), args.toArray(new Expression[0]));
+        }
+
+        @Override
+        public Expression<?> visit(SubQueryExpression<?> expr, @Nullable Class<?> operandType) {
+            if (operandType != null) {
+                Object value = evaluate(expr, em, templates);
+                Object bound = value != null ? coerce(value, operandType) : null;
+                if (bound != null) {
+                    changed = true;
+                    return ConstantImpl.create(bound);
+                }
+            }
+            return super.visit(expr, null);
+        }
+
+        // 서브쿼리가 아닌 첫 피연산자의 타입. 모두 서브쿼리면 서브쿼리 결과 타입 그대로 둔다.
+        private Class<?> operandType(Operation<?> expr) {
+            for (Expression<?> arg : expr.getArgs()) {
+                if (!(arg instanceof SubQueryExpression)) {
+                    return arg.getType();
+                }
+            }
+            return Object.class;
+        }
+
+        @Nullable
+        private Expression<?> projection(@Nullable Expression<?> projection) {
+            if (!(projection instanceof FactoryExpression)) {
+                return projection;
+            }
+            FactoryExpression<?> factory = (FactoryExpression<?>) projection;
+            List<Expression<?>> args = new ArrayList<>(factory.getArgs());
+            Object[] values = new Object[args.size()];
+            boolean hoisted = false;
+            for (int i = 0; i < args.size(); i++) {
+                if (args.get(i) instanceof SubQueryExpression) {
+                    values[i] = evaluate((SubQueryExpression<?>) args.get(i), em, templates);
+                    if (values[i] != null) {
+                        args.set(i, Expressions.numberTemplate(Integer.class, "0"));
+                        hoisted = true;
+                    }
+                }
+            }
+            if (!hoisted) {
+                return projection;
+            }
+            changed = true;
+            return new HoistedProjection<>(factory, args, values);
+        }
+    }
+
+    /**
+     * select 절에서 뺀 서브쿼리 값을 결과 행에 다시 채워 원래 projection 으로 만든다.
+     */
+    private static final class HoistedProjection<T> extends FactoryExpressionBase<T> {
+
+        private final FactoryExpression<T> original;
+        private final List<Expression<?>> args;
+        private final Object[] values;
+
+        private HoistedProjection(FactoryExpression<T> original, List<Expression<?>> args, Object[] values) {
+            super(original.getType());
+            this.original = original;
+            this.args = args;
+            this.values = values;
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Nullable
+        @Override
+        public T newInstance(Object... row) {
+            Object[] filled = row.clone();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    filled[i] = values[i];
+                }
+            }
+            return original.newInstance(filled);
+        }
+
+        @Nullable
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, @Nullable C context) {
+            return v.visit(this, context);
+        }
+    }
+
+    /**
+     * where / having / join on / select 절에 서브쿼리가 하나라도 있는지. 없으면 메타데이터를 복사하지 않고 그대로 실행한다.
+     */
+    private static final class SubQueryFinder implements Visitor<Boolean, Void> {
+
+        private static final SubQueryFinder INSTANCE = new SubQueryFinder();
+
+        static boolean contains(QueryMetadata metadata) {
+            for (JoinExpression join : metadata.getJoins()) {
+                if (INSTANCE.in(join.getCondition())) {
+                    return true;
+                }
+            }
+            return INSTANCE.in(metadata.getWhere()) || INSTANCE.in(metadata.getHaving())
+                    || INSTANCE.in(metadata.getProjection());
+        }
+
+        private boolean in(@Nullable Expression<?> expr) {
+            return expr != null && expr.accept(this, null);
+        }
+
+        @Override
+        public Boolean visit(Constant<?> expr, @Nullable Void context) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(FactoryExpression<?> expr, @Nullable Void context) {
+            for (Expression<?> arg : expr.getArgs()) {
+                if (in(arg)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean visit(Operation<?> expr, @Nullable Void context) {
+            for (Expression<?> arg : expr.getArgs()) {
+                if (in(arg)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean visit(ParamExpression<?> expr, @Nullable Void context) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(Path<?> expr, @Nullable Void context) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(SubQueryExpression<?> expr, @Nullable Void context) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(TemplateExpression<?> expr, @Nullable Void context) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression && in((Expression<?>) arg)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 서브쿼리 안에서 쓰인 경로의 루트와, 서브쿼리(와 그 안의 서브쿼리)가 from / join 으로 선언한 루트를 모은다.
+     * 쓰인 루트가 모두 선언된 것이면 바깥 쿼리와 상관이 없다.
+     */
+    private static final class Roots implements Visitor<Void, Void> {
+
+        private final Set<Path<?>> used = new HashSet<>();
+        private final Set<Path<?>> declared = new HashSet<>();
+        private boolean hasParams;
+
+        @Override
+        public Void visit(Constant<?> expr, @Nullable Void context) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, @Nullable Void context) {
+            expr.getArgs().forEach(arg -> arg.accept(this, null));
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, @Nullable Void context) {
+            expr.getArgs().forEach(arg -> arg.accept(this, null));
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, @Nullable Void context) {
+            hasParams = true;
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, @Nullable Void context) {
+            used.add(expr.getRoot());
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, @Nullable Void context) {
+            QueryMetadata metadata = expr.getMetadata();
+            hasParams |= !metadata.getParams().isEmpty();
+            for (JoinExpression join : metadata.getJoins()) {
+                Expression<?> target = join.getTarget();
+                if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+                    // join(member.team, team): member.team 은 쓰인 경로, team 은 선언
+                    ((Operation<?>) target).getArg(0).accept(this, null);
+                    declared.add(((Path<?>) ((Operation<?>) target).getArg(1)).getRoot());
+                } else if (target instanceof Path) {
+                    declared.add(((Path<?>) target).getRoot());
+                } else {
+                    target.accept(this, null);
+                }
+                if (join.getCondition() != null) {
+                    join.getCondition().accept(this, null);
+                }
+            }
+            accept(metadata.getWhere());
+            accept(metadata.getHaving());
+            accept(metadata.getProjection());
+            metadata.getGroupBy().forEach(this::accept);
+            for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+                order.getTarget().accept(this, null);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, @Nullable Void context) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    ((Expression<?>) arg).accept(this, null);
+                }
+            }
+            return null;
+        }
+
+        private void accept(@Nullable Expression<?> expr) {
+            if (expr != null) {
+                expr.accept(this, null);
+            }
+        }
+    }
+
+    private static final class Memo {
+
+        private final long version;
+        private final Object value;
+
+        private Memo(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.teddy.study.querydsl.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Hibernate 가 실행하는 모든 SQL 을 검사해 Member / Team 테이블 쓰기를 감지한다.
+ * 엔티티 변경뿐 아니라 querydsl update / delete 같은 벌크 연산도 여기서 잡힌다.
+ */
+public class TableWriteInspector implements StatementInspector {
+
+    private static final Set<String> TRACKED_TABLES = Set.of("member", "team");
+
+    private final DataVersionTracker dataVersionTracker;
+    // 리스너 빈이 EntityManagerFactory 에 의존할 수 있으므로 첫 쓰기 때 찾는다.
+    private final ObjectProvider<TableWriteListener> listenerProvider;
+    private volatile List<TableWriteListener> listeners;
+
+    public TableWriteInspector(DataVersionTracker dataVersionTracker, ObjectProvider<TableWriteListener> listenerProvider) {
+        this.dataVersionTracker = dataVersionTracker;
+        this.listenerProvider = listenerProvider;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String table = writtenTable(sql);
+        if (table != null && TRACKED_TABLES.contains(table)) {
+            dataVersionTracker.bump();
+            for (TableWriteListener listener : listeners()) {
+                listener.onWrite(table, sql);
+            }
+        }
+        return sql;
+    }
+
+    private List<TableWriteListener> listeners() {
+        List<TableWriteListener> resolved = listeners;
+        if (resolved == null) {
+            resolved = listenerProvider.orderedStream().collect(Collectors.toList());
+            listeners = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * insert / update / delete 문이면 대상 테이블 이름(소문자)을, 아니면 null 을 돌려준다.
+     */
+    static String writtenTable(String sql) {
+        int i = skipWhitespaceAndComments(sql, 0);
+        if (startsWithWord(sql, i, "insert")) {
+            i = skipWord(sql, i, "insert");
+            if (!startsWithWord(sql, i, "into")) {
+                return null;
+            }
+            return tableName(sql, skipWord(sql, i, "into"));
+        }
+        if (startsWithWord(sql, i, "update")) {
+            return tableName(sql, skipWord(sql, i, "update"));
+        }
+        if (startsWithWord(sql, i, "delete")) {
+            i = skipWord(sql, i, "delete");
+            if (startsWithWord(sql, i, "from")) {
+                i = skipWord(sql, i, "from");
+            }
+            return tableName(sql, i);
+        }
+        return null;
+    }
+
+    /**
+     * insert into t (...) values (...) 처럼 엔티티 저장으로 만들어지는 단건 insert 인지. insert ... select 는 벌크로 본다.
+     */
+    public static boolean isSingleRowInsert(String sql) {
+        int i = skipWhitespaceAndComments(sql, 0);
+        String lower = sql.toLowerCase();
+        return startsWithWord(sql, i, "insert") && lower.contains(" values") && !lower.contains(" select ");
+    }
+
+    /**
+     * 이 쓰기가 column 에 값을 넣을 수 있는지. insert 는 항상, delete 는 아니고, update 는 set 절에서 column 에 대입할 때만.
+     * 해석할 수 없는 update 는 넣는 것으로 본다.
+     */
+    public static boolean assignsColumn(String sql, String column) {
+        int i = skipWhitespaceAndComments(sql, 0);
+        if (startsWithWord(sql, i, "insert")) {
+            return true;
+        }
+        if (!startsWithWord(sql, i, "update")) {
+            return false;
+        }
+        String lower = sql.toLowerCase();
+        int set = lower.indexOf(" set ", i);
+        if (set < 0) {
+            return true;
+        }
+        int where = lower.indexOf(" where ", set);
+        String assignments = lower.substring(set + 4, where < 0 ? lower.length() : where);
+        // username=? , m.username = ? (값 쪽의 비교식도 걸리지만 그때는 보수적으로 true)
+        return Pattern.compile("(^|[\\s,.])" + Pattern.quote(column.toLowerCase()) + "\\s*=").matcher(assignments).find();
+    }
+
+    private static int skipWhitespaceAndComments(String sql, int from) {
+        int i = from;
+        while (i < sql.length()) {
+            if (Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? sql.length() : end + 2;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean startsWithWord(String sql, int from, String word) {
+        int end = from + word.length();
+        return sql.regionMatches(true, from, word, 0, word.length())
+                && (end == sql.length() || !Character.isLetterOrDigit(sql.charAt(end)));
+    }
+
+    private static int skipWord(String sql, int from, String word) {
+        return skipWhitespaceAndComments(sql, from + word.length());
+    }
+
+    private static String tableName(String sql, int from) {
+        int end = from;
+        while (end < sql.length() && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '_')) {
+            end++;
+        }
+        return end == from ? null : sql.substring(from, end).toLowerCase();
+    }
+}
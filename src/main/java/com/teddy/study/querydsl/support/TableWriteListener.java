@@ -0,0 +1,14 @@
+package com.teddy.study.querydsl.support;
+
+/**
+ * {@link TableWriteInspector} 가 감지한 테이블 쓰기를 받는다. 빈으로 등록하면 자동으로 연결된다.
+ * Hibernate 가 SQL 을 준비하는 스레드에서 바로 불리므로 가볍게 처리해야 한다.
+ */
+public interface TableWriteListener {
+
+    /**
+     * @param table 소문자 테이블 이름
+     * @param sql   실행될 SQL (바인드 값 제외)
+     */
+    void onWrite(String table, String sql);
+}
@@ -3,6 +3,7 @@ package com.teddy.study.querydsl;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.QueryResults;
 import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
@@ -16,11 +17,16 @@ import com.teddy.study.querydsl.entity.Member;
 import com.teddy.study.querydsl.entity.QMember;
 import com.teddy.study.querydsl.entity.QTeam;
 import com.teddy.study.querydsl.entity.Team;
+import com.teddy.study.querydsl.support.QueryBudget;
+import com.teddy.study.querydsl.support.QueryBudgetConfig;
+import com.teddy.study.querydsl.support.QueryUsage;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.Commit;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +34,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceUnit;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static com.querydsl.jpa.JPAExpressions.*;
@@ -37,6 +44,7 @@ import static org.assertj.core.api.Assertions.*;
 
 @SpringBootTest
 @Transactional
+@Import(QueryBudgetConfig.class)
 public class QuerydslBasicTest {
 
     @Autowired
@@ -44,6 +52,16 @@ public class QuerydslBasicTest {
 
     JPAQueryFactory queryFactory;
 
+    // 스칼라 서브쿼리를 먼저 계산하는 HoistingJPAQueryFactory
+    @Autowired
+    JPAQueryFactory hoistingQueryFactory;
+
+    @Autowired
+    QueryBudget queryBudget;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @BeforeEach
     public void before() {
         queryFactory = new JPAQueryFactory(em);
@@ -361,6 +379,80 @@ public class QuerydslBasicTest {
 
     }
 
+    @Test
+    public void hoistedSubQuery() throws Exception {
+        // given
+        QMember memberSub = new QMember("memberSub");
+        em.flush();
+        double uncachedBefore = hoisted("uncached");
+        double hitsBefore = hoisted("hit");
+        double missesBefore = hoisted("miss");
+
+        // When
+        List<Member> oldest = new ArrayList<>();
+        QueryUsage usage = queryBudget.measure(() -> oldest.addAll(hoistingQueryFactory
+                .selectFrom(member)
+                .where(member.age.eq(
+                        select(memberSub.age.max())
+                                .from(memberSub)
+                ))
+                .fetch()));
+
+        Expression<Double> avgAge = select(memberSub.age.avg()).from(memberSub);
+        List<Tuple> withAvg = hoistingQueryFactory
+                .select(member.username, avgAge)
+                .from(member)
+                .fetch();
+
+        // 팀별 최고령 (상관 서브쿼리는 그대로 실행)
+        List<Member> oldestInTeam = hoistingQueryFactory
+                .selectFrom(member)
+                .where(member.age.eq(
+                        select(memberSub.age.max())
+                                .from(memberSub)
+                                .where(memberSub.team.eq(member.team))
+                ))
+                .fetch();
+
+        // Double 인 avg 결과는 Integer 경로 타입으로 바꿔 바인드한다. 정수로 바뀌지 않으면 서브쿼리를 그대로 둔다.
+        List<Member> aboveAvg = hoistingQueryFactory
+                .selectFrom(member)
+                .where(member.age.goe(
+                        select(memberSub.age.avg())
+                                .from(memberSub)
+                ))
+                .fetch();
+        List<Member> aboveFractionalAvg = hoistingQueryFactory
+                .selectFrom(member)
+                .where(member.age.goe(
+                        select(memberSub.age.avg())
+                                .from(memberSub)
+                                .where(memberSub.age.in(10, 20, 40))
+                ))
+                .fetch();
+
+        // Then
+        assertThat(oldest).extracting("age").containsExactly(40);
+        assertThat(aboveAvg).extracting("age").containsExactlyInAnyOrder(30, 40);
+        assertThat(aboveFractionalAvg).extracting("age").containsExactlyInAnyOrder(30, 40);
+        assertThat(withAvg).hasSize(4);
+        assertThat(withAvg).extracting(tuple -> tuple.get(avgAge)).containsOnly(25.0);
+        assertThat(oldestInTeam).extracting("age").containsExactlyInAnyOrder(20, 40);
+
+        // 서브쿼리를 먼저 실행하고, 바깥 쿼리 SQL 에는 서브쿼리 대신 바인드 값이 들어간다.
+        assertThat(usage.getStatements()).isEqualTo(2);
+        String outer = usage.getSql().get(usage.getSql().size() - 1).toLowerCase();
+        assertThat(outer.split("select", -1)).hasSize(2);
+        // 이 트랜잭션에서 쓴 데이터라 캐시를 거치지 않는다. (상관 서브쿼리는 세지 않는다)
+        assertThat(hoisted("uncached") - uncachedBefore).isEqualTo(4);
+        assertThat(hoisted("hit")).isEqualTo(hitsBefore);
+        assertThat(hoisted("miss")).isEqualTo(missesBefore);
+    }
+
+    private double hoisted(String result) {
+        return meterRegistry.get("querydsl.subquery.hoisted").tag("result", result).counter().count();
+    }
+
     @Test
     public void basicCase() throws Exception {
         // given
@@ -0,0 +1,165 @@
+package com.teddy.study.querydsl.benchmark;
+
+import com.teddy.study.querydsl.QuerydslApplication;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import com.teddy.study.querydsl.repository.MemberRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 search 부하에서 기본값과 운영 설정(application.yml)의 풀 / 문장 캐시 값을 비교한다.
+ * ./gradlew benchmark -Dbenchmark.threads=32 -Dbenchmark.seconds=10
+ */
+@Tag("benchmark")
+class ConnectionPoolBenchmark {
+
+    private static final int MEMBERS = Integer.getInteger("benchmark.members", 20_000);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 32);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 10);
+
+    @Test
+    public void compareSettings() throws Exception {
+        Map<String, String[]> settings = new LinkedHashMap<>();
+        // HikariCP / H2 / Hibernate 기본값
+        settings.put("defaults", new String[]{
+                "spring.datasource.url=jdbc:h2:mem:pool-defaults;DB_CLOSE_DELAY=-1"});
+        settings.put("shipped", shippedSettings());
+
+        System.out.println("== connection pool benchmark (" + THREADS + " threads, " + SECONDS + "s, " + MEMBERS + " members) ==");
+        for (Map.Entry<String, String[]> entry : settings.entrySet()) {
+            System.out.println(entry.getKey() + " " + String.join(" ", entry.getValue()));
+            System.out.println(entry.getKey() + " " + run(entry.getValue()));
+        }
+    }
+
+    private String run(String[] properties) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .properties("spring.jpa.properties.hibernate.generate_statistics=true",
+                        "logging.level.org.hibernate.SQL=warn", "logging.level.org.hibernate.type=warn")
+                .run()) {
+
+            seed(context);
+            MemberRepository memberRepository = context.getBean(MemberRepository.class);
+            List<MemberSearchCondition> shapes = conditionShapes();
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+            List<Future<LatencyStats>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    LatencyStats stats = new LatencyStats(10_000);
+                    for (int i = offset; System.nanoTime() < deadline; i++) {
+                        long start = System.nanoTime();
+                        memberRepository.search(shapes.get(i % shapes.size()));
+                        stats.record(System.nanoTime() - start);
+                    }
+                    return stats;
+                }));
+            }
+
+            LatencyStats total = new LatencyStats(100_000);
+            for (Future<LatencyStats> future : futures) {
+                total.merge(future.get());
+            }
+            executor.shutdown();
+
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            Timer acquire = registry.find("hikaricp.connections.acquire").timer();
+            Double hitRatio = registry.find("hibernate.query.plan.cache.hit.ratio").gauge() != null
+                    ? registry.find("hibernate.query.plan.cache.hit.ratio").gauge().value() : null;
+
+            return String.format("throughput=%.0f/s %s acquireMean=%.1fus acquireMax=%.1fus planCacheHitRatio=%.3f",
+                    total.count() / (double) SECONDS, total.summary(),
+                    acquire == null ? 0 : acquire.mean(TimeUnit.MICROSECONDS),
+                    acquire == null ? 0 : acquire.max(TimeUnit.MICROSECONDS),
+                    hitRatio == null ? Double.NaN : hitRatio);
+        }
+    }
+
+    // 운영 설정(src/main/resources/application.yml)의 풀 / 문장 캐시 값을 그대로 쓴다.
+    // 테스트 클래스패스의 application.yml 은 test 용이라 파일에서 직접 읽는다. (gradle 은 프로젝트 디렉터리에서 실행)
+    private static String[] shippedSettings() {
+        FileSystemResource file = new FileSystemResource("src/main/resources/application.yml");
+        if (!file.exists()) {
+            throw new IllegalStateException("run from the project directory: " + file.getFile().getAbsolutePath() + " not found");
+        }
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(file);
+        Properties shipped = yaml.getObject();
+
+        // 파일 DB 대신 인메모리 DB 에 같은 URL 옵션(QUERY_CACHE_SIZE 등)을 붙인다.
+        String url = shipped.getProperty("spring.datasource.url", "");
+        int options = url.indexOf(';');
+        List<String> settings = new ArrayList<>();
+        settings.add("spring.datasource.url=jdbc:h2:mem:pool-shipped;DB_CLOSE_DELAY=-1" + (options < 0 ? "" : url.substring(options)));
+        for (String name : shipped.stringPropertyNames()) {
+            if (name.startsWith("spring.datasource.hikari.") || name.startsWith("spring.jpa.properties.hibernate.query.")) {
+                settings.add(name + "=" + shipped.getProperty(name));
+            }
+        }
+        return settings.toArray(new String[0]);
+    }
+
+    // 동적 where 조합별로 서로 다른 JPQL 모양이 나오도록
+    private List<MemberSearchCondition> conditionShapes() {
+        List<MemberSearchCondition> shapes = new ArrayList<>();
+        for (int mask = 1; mask < 16; mask++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            if ((mask & 1) != 0) {
+                condition.setUsername("member" + mask * 100);
+            }
+            if ((mask & 2) != 0) {
+                condition.setTeamName("team" + mask % 10);
+            }
+            if ((mask & 4) != 0) {
+                condition.setAgeGoe(20);
+            }
+            if ((mask & 8) != 0) {
+                condition.setAgeLoe(25);
+            }
+            shapes.add(condition);
+        }
+        return shapes;
+    }
+
+    private void seed(ConfigurableApplicationContext context) {
+        EntityManager em = context.getBean(EntityManager.class);
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            Team[] teams = new Team[10];
+            for (int i = 0; i < teams.length; i++) {
+                teams[i] = new Team("team" + i);
+                em.persist(teams[i]);
+            }
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, teams[i % teams.length]));
+                if (i % 1_000 == 0) {
+                    em.flush();
+                }
+            }
+        });
+    }
+}
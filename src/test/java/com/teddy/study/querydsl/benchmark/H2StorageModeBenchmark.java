@@ -0,0 +1,114 @@
+package com.teddy.study.querydsl.benchmark;
+
+import com.teddy.study.querydsl.QuerydslApplication;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import com.teddy.study.querydsl.repository.MemberJpaRepository;
+import com.teddy.study.querydsl.repository.MemberRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * H2 저장 모드별 리포지토리 조회 지연시간 비교.
+ * ./gradlew benchmark -Dbenchmark.members=20000 (-Dbenchmark.tcp=true 면 TCP 서버 모드도 포함)
+ */
+@Tag("benchmark")
+class H2StorageModeBenchmark {
+
+    private static final int MEMBERS = Integer.getInteger("benchmark.members", 20_000);
+    private static final int TEAMS = 10;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1_000;
+
+    @Test
+    public void compareStorageModes() {
+        Map<String, String> modes = new LinkedHashMap<>();
+        modes.put("embedded", "embedded");
+        modes.put("mmap", "mmap");
+        modes.put("mem", "mem");
+        if (Boolean.getBoolean("benchmark.tcp")) {
+            // test 프로파일의 기본 datasource (TCP 서버)
+            modes.put("tcp", "test");
+        }
+
+        Map<String, Map<String, LatencyStats>> report = new LinkedHashMap<>();
+        modes.forEach((name, profile) -> report.put(name, run(profile)));
+
+        System.out.println("== H2 storage mode benchmark (" + MEMBERS + " members) ==");
+        report.forEach((mode, results) ->
+                results.forEach((query, stats) -> System.out.printf("%-9s %-22s %s%n", mode, query, stats.summary())));
+    }
+
+    private Map<String, LatencyStats> run(String profile) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profile)
+                .properties("logging.level.org.hibernate.SQL=warn", "logging.level.org.hibernate.type=warn")
+                .run()) {
+
+            seed(context);
+
+            MemberJpaRepository memberJpaRepository = context.getBean(MemberJpaRepository.class);
+            MemberRepository memberRepository = context.getBean(MemberRepository.class);
+
+            MemberSearchCondition teamAndAge = new MemberSearchCondition();
+            teamAndAge.setTeamName("team3");
+            teamAndAge.setAgeGoe(20);
+            teamAndAge.setAgeLoe(40);
+
+            Map<String, LatencyStats> results = new LinkedHashMap<>();
+            results.put("findByUsername", measure(() -> memberRepository.findByUsername("member" + (MEMBERS / 2))));
+            results.put("findByUsername_Querydsl", measure(() -> memberJpaRepository.findByUsername_Querydsl("member" + (MEMBERS / 2))));
+            results.put("search", measure(() -> memberJpaRepository.search(teamAndAge)));
+            results.put("searchPageComplex", measure(() -> memberRepository.searchPageComplex(teamAndAge, PageRequest.of(1, 20))));
+            return results;
+        }
+    }
+
+    private void seed(ConfigurableApplicationContext context) {
+        EntityManager em = context.getBean(EntityManager.class);
+        TransactionTemplate tx = context.getBean(TransactionTemplate.class);
+
+        tx.executeWithoutResult(status -> {
+            Team[] teams = new Team[TEAMS];
+            for (int i = 0; i < TEAMS; i++) {
+                teams[i] = new Team("team" + i);
+                em.persist(teams[i]);
+            }
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, teams[i % TEAMS]));
+                if (i % 1_000 == 0) {
+                    em.flush();
+                    em.clear();
+                    for (int t = 0; t < TEAMS; t++) {
+                        teams[t] = em.getReference(Team.class, teams[t].getId());
+                    }
+                }
+            }
+        });
+    }
+
+    private LatencyStats measure(Supplier<?> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+        }
+        LatencyStats stats = new LatencyStats(ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            stats.record(System.nanoTime() - start);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,56 @@
+package com.teddy.study.querydsl.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * 벤치마크 측정값(나노초)을 모아 평균 / 백분위를 계산한다.
+ */
+public class LatencyStats {
+
+    private long[] samples;
+    private int count;
+
+    public LatencyStats(int expectedSamples) {
+        this.samples = new long[Math.max(expectedSamples, 16)];
+    }
+
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public void merge(LatencyStats other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.samples[i]);
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public double meanMicros() {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return count == 0 ? 0 : sum / (double) count / 1_000;
+    }
+
+    public double percentileMicros(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))] / 1_000.0;
+    }
+
+    public String summary() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus",
+                count, meanMicros(), percentileMicros(50), percentileMicros(99));
+    }
+}
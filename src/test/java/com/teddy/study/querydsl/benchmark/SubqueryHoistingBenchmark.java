@@ -0,0 +1,126 @@
+package com.teddy.study.querydsl.benchmark;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.teddy.study.querydsl.QuerydslApplication;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.QMember;
+import com.teddy.study.querydsl.entity.Team;
+import com.teddy.study.querydsl.support.HoistingJPAQueryFactory;
+import com.teddy.study.querydsl.support.SubqueryHoister;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.querydsl.jpa.JPAExpressions.select;
+import static com.teddy.study.querydsl.entity.QMember.member;
+
+/**
+ * QuerydslBasicTest.subQuery / selectSubQuery 모양의 쿼리를 큰 테이블에서
+ * 그대로 실행 / 서브쿼리를 먼저 계산 / 계산 결과까지 캐시 했을 때의 지연시간 비교.
+ * ./gradlew benchmark -Dbenchmark.members=200000
+ */
+@Tag("benchmark")
+class SubqueryHoistingBenchmark {
+
+    private static final int MEMBERS = Integer.getInteger("benchmark.members", 200_000);
+    private static final int TEAMS = 10;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    @Test
+    public void compareSubqueryHoisting() {
+        Map<String, LatencyStats> report = new LinkedHashMap<>();
+        report.putAll(run("plain", 0));
+        report.putAll(run("hoisted", 0));
+        report.putAll(run("hoisted+cache", 256));
+
+        System.out.println("== subquery hoisting benchmark (" + MEMBERS + " members) ==");
+        report.forEach((query, stats) -> System.out.printf("%-32s %s%n", query, stats.summary()));
+    }
+
+    private Map<String, LatencyStats> run(String mode, int cacheEntries) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("mem")
+                .properties("logging.level.org.hibernate.SQL=warn", "logging.level.org.hibernate.type=warn",
+                        "querydsl.subquery-hoisting.cache-max-entries=" + cacheEntries)
+                .run()) {
+
+            seed(context);
+
+            EntityManager em = context.getBean(EntityManager.class);
+            TransactionTemplate tx = context.getBean(TransactionTemplate.class);
+            JPAQueryFactory queryFactory = "plain".equals(mode)
+                    ? new JPAQueryFactory(em)
+                    : new HoistingJPAQueryFactory(em, context.getBean(SubqueryHoister.class));
+
+            QMember memberSub = new QMember("memberSub");
+            Expression<Double> avgAge = select(memberSub.age.avg()).from(memberSub);
+
+            Map<String, LatencyStats> results = new LinkedHashMap<>();
+            // where age = (select max(age) ...)
+            results.put(mode + " where max", measure(tx, q -> q
+                    .selectFrom(member)
+                    .where(member.age.eq(select(memberSub.age.max()).from(memberSub)))
+                    .limit(100)
+                    .fetch(), queryFactory));
+            // where age > (select avg(age) ...) 인 팀 하나 회원
+            results.put(mode + " where team and > avg", measure(tx, q -> q
+                    .selectFrom(member)
+                    .where(member.teamName.eq("team3"), member.age.gt(avgAge))
+                    .fetch(), queryFactory));
+            // select username, (select avg(age) ...) ... limit 1000
+            results.put(mode + " select avg", measure(tx, q -> q
+                    .select(member.username, avgAge)
+                    .from(member)
+                    .limit(1_000)
+                    .fetch(), queryFactory));
+            return results;
+        }
+    }
+
+    private void seed(ConfigurableApplicationContext context) {
+        EntityManager em = context.getBean(EntityManager.class);
+        TransactionTemplate tx = context.getBean(TransactionTemplate.class);
+
+        tx.executeWithoutResult(status -> {
+            Team[] teams = new Team[TEAMS];
+            for (int i = 0; i < TEAMS; i++) {
+                teams[i] = new Team("team" + i);
+                em.persist(teams[i]);
+            }
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, teams[i % TEAMS]));
+                if (i % 1_000 == 0) {
+                    em.flush();
+                    em.clear();
+                    for (int t = 0; t < TEAMS; t++) {
+                        teams[t] = em.getReference(Team.class, teams[t].getId());
+                    }
+                }
+            }
+        });
+    }
+
+    private LatencyStats measure(TransactionTemplate tx, Function<JPAQueryFactory, ?> query, JPAQueryFactory queryFactory) {
+        for (int i = 0; i < WARMUP; i++) {
+            tx.execute(status -> query.apply(queryFactory));
+        }
+        LatencyStats stats = new LatencyStats(ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            tx.execute(status -> query.apply(queryFactory));
+            stats.record(System.nanoTime() - start);
+        }
+        return stats;
+    }
+}
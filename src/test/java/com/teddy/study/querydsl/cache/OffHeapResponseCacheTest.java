@@ -0,0 +1,73 @@
+package com.teddy.study.querydsl.cache;
+
+import com.teddy.study.querydsl.cache.OffHeapResponseCache.CachedResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapResponseCacheTest {
+
+    @Test
+    public void storedAcrossBlocks() throws Exception {
+        // given
+        OffHeapResponseCache cache = new OffHeapResponseCache(64 * 1024, 1, 1024, 16 * 1024);
+        byte[] body = new byte[2500];
+        Arrays.fill(body, (byte) 'x');
+        body[2499] = 'y';
+
+        // When
+        cache.put("/v3/members|p1:0;", 1, "application/json", "\"1-abc\"", body);
+        CachedResponse cached = cache.get("/v3/members|p1:0;", 1);
+
+        // Then
+        assertThat(cached.getBody()).isEqualTo(body);
+        assertThat(cached.getContentType()).isEqualTo("application/json");
+        assertThat(cached.getEtag()).isEqualTo("\"1-abc\"");
+        assertThat(cache.usedBytes()).isEqualTo(3 * 1024);
+    }
+
+    @Test
+    public void staleVersionIsDropped() throws Exception {
+        // given
+        OffHeapResponseCache cache = new OffHeapResponseCache(64 * 1024, 1, 1024, 16 * 1024);
+        cache.put("key", 1, "application/json", null, "[]".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        CachedResponse cached = cache.get("key", 2);
+
+        // Then
+        assertThat(cached).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.usedBytes()).isZero();
+    }
+
+    @Test
+    public void frequentKeysStay() throws Exception {
+        // given
+        // 블록 4개 짜리 캐시
+        OffHeapResponseCache cache = new OffHeapResponseCache(4 * 1024, 1, 1024, 1024);
+        byte[] body = new byte[1000];
+        for (int i = 0; i < 4; i++) {
+            for (int hit = 0; hit < 3; hit++) {
+                cache.get("hot" + i, 1);
+            }
+            cache.put("hot" + i, 1, "application/json", null, body);
+        }
+
+        // When
+        // 한 번 조회된 키는 자주 조회된 키를 밀어내지 못한다.
+        cache.get("cold", 1);
+        boolean coldAdmitted = cache.put("cold", 1, "application/json", null, body);
+
+        // 버전이 지난 항목은 빈도와 상관없이 밀려난다.
+        boolean newVersionAdmitted = cache.put("cold", 2, "application/json", null, body);
+
+        // Then
+        assertThat(coldAdmitted).isFalse();
+        assertThat(newVersionAdmitted).isTrue();
+        assertThat(cache.get("cold", 2)).isNotNull();
+    }
+}
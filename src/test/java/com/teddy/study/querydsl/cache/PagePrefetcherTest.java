@@ -0,0 +1,159 @@
+package com.teddy.study.querydsl.cache;
+
+import com.teddy.study.querydsl.config.PrefetchProperties;
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.dto.MemberTeamDto;
+import com.teddy.study.querydsl.repository.MemberRepository;
+import com.teddy.study.querydsl.support.AdaptiveConcurrencyLimit;
+import com.teddy.study.querydsl.support.ConcurrencyLimits;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PagePrefetcherTest {
+
+    MemberRepository memberRepository = mock(MemberRepository.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PrefetchProperties properties = new PrefetchProperties();
+    // 미리 읽기 스레드에서 teamA 조건 조회를 붙잡아 둔다.
+    CountDownLatch blockTeamA = new CountDownLatch(0);
+    PagePrefetcher prefetcher;
+
+    MemberSearchCondition teamA = condition("teamA");
+    MemberSearchCondition teamB = condition("teamB");
+
+    {
+        properties.setEnabled(true);
+        properties.setThreads(1);
+        doAnswer(invocation -> {
+            if (Thread.currentThread().getName().startsWith("page-prefetch-")
+                    && "teamA".equals(invocation.<MemberSearchCondition>getArgument(0).getTeamName())) {
+                if (!blockTeamA.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("not released");
+                }
+            }
+            return page(invocation.getArgument(1));
+        }).when(memberRepository).searchPageComplex(any(), any());
+    }
+
+    @AfterEach
+    void after() {
+        prefetcher.shutdown();
+    }
+
+    @Test
+    public void nextPageServedFromPrefetch() throws Exception {
+        // given
+        prefetcher = prefetcher(new ConcurrencyLimits(Map.of()));
+        prefetcher.searchPageComplex(teamB, PageRequest.of(0, 20), "client1");
+        verify(memberRepository, timeout(5_000)).searchPageComplex(any(), eq(PageRequest.of(1, 20)));
+
+        // When
+        Page<MemberTeamDto> next = prefetcher.searchPageComplex(teamB, PageRequest.of(1, 20), "client1");
+
+        // Then
+        assertThat(next.getNumber()).isEqualTo(1);
+        assertThat(count("hit")).isEqualTo(1);
+        verify(memberRepository, times(1)).searchPageComplex(any(), eq(PageRequest.of(1, 20)));
+    }
+
+    @Test
+    public void slowPrefetchFallsBackToDirectQuery() throws Exception {
+        // given
+        blockTeamA = new CountDownLatch(1);
+        properties.setAwaitTimeout(Duration.ofMillis(50));
+        prefetcher = prefetcher(new ConcurrencyLimits(Map.of()));
+        prefetcher.searchPageComplex(teamA, PageRequest.of(0, 20), "client1");
+
+        // When
+        Page<MemberTeamDto> next = prefetcher.searchPageComplex(teamA, PageRequest.of(1, 20), "client1");
+
+        // Then (미리 읽기가 끝나기를 기다리지 않고 직접 조회)
+        assertThat(next.getNumber()).isEqualTo(1);
+        assertThat(count("wasted")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(2);
+        blockTeamA.countDown();
+    }
+
+    @Test
+    public void prefetchSharesRequestLimit() throws Exception {
+        // given (요청이 한도를 모두 쓰고 있다)
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, TimeUnit.SECONDS.toNanos(1),
+                0.9, TimeUnit.SECONDS.toNanos(1), 1.0);
+        prefetcher = prefetcher(new ConcurrencyLimits(Map.of("/v3/members", limit)));
+        assertThat(limit.tryAcquire(false)).isTrue();
+
+        // When
+        prefetcher.searchPageComplex(teamB, PageRequest.of(0, 20), "client1");
+
+        // Then
+        assertThat(count("skipped")).isEqualTo(1);
+        verify(memberRepository, times(1)).searchPageComplex(any(), any());
+
+        // 한도가 비면 미리 읽고, 끝나면 돌려준다.
+        limit.release(false, 0, false);
+        prefetcher.searchPageComplex(teamB, PageRequest.of(2, 20), "client1");
+        verify(memberRepository, timeout(5_000)).searchPageComplex(any(), eq(PageRequest.of(3, 20)));
+        Thread.sleep(50);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    public void shutdownReleasesWaitingRequests() throws Exception {
+        // given (스레드 하나가 teamA 를 읽느라 막혀 있고, teamB 미리 읽기는 큐에서 기다린다)
+        blockTeamA = new CountDownLatch(1);
+        properties.setAwaitTimeout(Duration.ofSeconds(30));
+        prefetcher = prefetcher(new ConcurrencyLimits(Map.of()));
+        prefetcher.searchPageComplex(teamA, PageRequest.of(0, 20), "client1");
+        prefetcher.searchPageComplex(teamB, PageRequest.of(0, 20), "client2");
+        CompletableFuture<Page<MemberTeamDto>> waiting = CompletableFuture.supplyAsync(
+                () -> prefetcher.searchPageComplex(teamB, PageRequest.of(1, 20), "client2"));
+        Thread.sleep(100);
+
+        // When
+        prefetcher.shutdown();
+
+        // Then (기다리던 요청은 직접 조회로 넘어간다)
+        assertThat(waiting.get(5, TimeUnit.SECONDS).getNumber()).isEqualTo(1);
+        assertThat(count("wasted")).isEqualTo(1);
+    }
+
+    private PagePrefetcher prefetcher(ConcurrencyLimits limits) {
+        return new PagePrefetcher(memberRepository, new DataVersionTracker(), properties, limits, meterRegistry);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("member.search.prefetch").tag("result", result).counter().count();
+    }
+
+    private static Page<MemberTeamDto> page(Pageable pageable) {
+        return new PageImpl<>(List.of(), pageable, 100);
+    }
+
+    private static MemberSearchCondition condition(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
@@ -0,0 +1,131 @@
+package com.teddy.study.querydsl.cache;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.repository.MemberJpaRepository;
+import com.teddy.study.querydsl.repository.MemberRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static com.teddy.study.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class UsernameFilterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    UsernameFilter usernameFilter;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void before() {
+        em.persist(new Member("member1", 10));
+        em.flush();
+        em.clear();
+        usernameFilter.rebuild();
+    }
+
+    @Test
+    public void absentUsername() {
+        // given
+        assertThat(usernameFilter.isUsable()).isTrue();
+        double negatives = lookups("negative");
+        double bypassed = lookups("bypassed");
+
+        // When
+        // Then
+        assertThat(memberJpaRepository.findByUsername_Querydsl("no-such-member")).isEmpty();
+        assertThat(memberJpaRepository.findByUsername("no-such-member")).isEmpty();
+        // 없는 username 두 번은 DB 에 가지 않고 필터에서 걸러졌다.
+        assertThat(lookups("negative") - negatives).isEqualTo(2);
+        assertThat(lookups("bypassed")).isEqualTo(bypassed);
+
+        assertThat(usernameFilter.mightContain("member1")).isTrue();
+        assertThat(memberRepository.findByUsername("member1")).hasSize(1);
+    }
+
+    @Test
+    public void addedAfterRebuild() {
+        // given
+        memberJpaRepository.save(new Member("member2", 20));
+
+        // When
+        // flush 전에도 조회되어야 한다.
+        assertThat(memberJpaRepository.findByUsername_Querydsl("member2")).hasSize(1);
+        em.clear();
+
+        // Then
+        assertThat(usernameFilter.mightContain("member2")).isTrue();
+        assertThat(memberRepository.findByUsername("member2")).hasSize(1);
+    }
+
+    @Test
+    public void renamedEntityStaysUsable() {
+        // given
+        Member member1 = memberRepository.findByUsername("member1").get(0);
+
+        // When
+        member1.setUsername("renamed");
+        // flush 전에도 조회되어야 한다.
+        assertThat(memberJpaRepository.findByUsername("renamed")).hasSize(1);
+        em.flush();
+        em.clear();
+
+        // Then
+        assertThat(usernameFilter.isUsable()).isTrue();
+        assertThat(usernameFilter.mightContain("renamed")).isTrue();
+        assertThat(memberRepository.findByUsername("renamed")).hasSize(1);
+    }
+
+    @Test
+    public void bulkUpdateWithoutUsernameKeepsFilter() {
+        // given
+        new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.eq("member1"))
+                .execute();
+
+        // When
+        // Then
+        assertThat(usernameFilter.isUsable()).isTrue();
+        assertThat(memberJpaRepository.findByUsername("no-such-member")).isEmpty();
+    }
+
+    @Test
+    public void bulkUpdateInvalidates() {
+        // given
+        new JPAQueryFactory(em)
+                .update(member)
+                .set(member.username, "renamed")
+                .where(member.username.eq("member1"))
+                .execute();
+
+        // When
+        // Then
+        assertThat(usernameFilter.isUsable()).isFalse();
+        assertThat(memberRepository.findByUsername("renamed")).hasSize(1);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("member.username.filter.lookups").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,39 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.support.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitInterceptorTest {
+
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, TimeUnit.SECONDS.toNanos(1),
+            0.9, TimeUnit.SECONDS.toNanos(1), 1.0);
+    ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(Map.of("/v2/members", limit),
+            new SearchCostEstimator(500), new SimpleMeterRegistry());
+
+    @Test
+    public void trailingSlashSharesLimit() throws Exception {
+        // given (끝에 / 가 붙은 요청이 한도를 차지한다)
+        MockHttpServletRequest withSlash = new MockHttpServletRequest("GET", "/v2/members/");
+        assertThat(interceptor.preHandle(withSlash, new MockHttpServletResponse(), new Object())).isTrue();
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean admitted = interceptor.preHandle(new MockHttpServletRequest("GET", "/v2/members"), response, new Object());
+
+        // Then
+        assertThat(admitted).isFalse();
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(limit.getInFlight()).isEqualTo(1);
+
+        interceptor.afterCompletion(withSlash, new MockHttpServletResponse(), new Object(), null);
+        assertThat(limit.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,110 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 적재 / 복원은 각자 커밋하므로 @Transactional 대신 끝나면 지운다.
+@SpringBootTest(properties = {"querydsl.init.member-count=30", "querydsl.init.team-count=2"})
+class InitMemberSnapshotTest {
+
+    static Path snapshotDir;
+
+    @DynamicPropertySource
+    static void snapshotDir(DynamicPropertyRegistry registry) throws Exception {
+        snapshotDir = Files.createTempDirectory("querydsl-seed");
+        registry.add("querydsl.init.snapshot-dir", snapshotDir::toString);
+    }
+
+    @Autowired
+    InitMember.InitMemberService initMemberService;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DataVersionTracker dataVersionTracker;
+
+    long baseId;
+
+    @BeforeEach
+    void before() {
+        baseId = jdbcTemplate.queryForObject("select greatest(coalesce((select max(member_id) from member), 0),"
+                + " coalesce((select max(team_id) from team), 0))", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        deleteAfterBase();
+    }
+
+    @Test
+    public void restoreFromSnapshot() throws Exception {
+        // given (첫 기동: 적재하고 스냅샷을 남긴다)
+        initMemberService.init();
+        assertThat(snapshotDir.resolve("members-30-teams-2").resolve("member.csv")).exists();
+        List<Map<String, Object>> seeded = members();
+        assertThat(seeded).hasSize(30);
+        deleteAfterBase();
+
+        long bulkEvents = bulkRestoreEvents();
+        long version = dataVersionTracker.current();
+
+        // When (다음 기동: 스냅샷에서 복원)
+        initMemberService.init();
+
+        // Then
+        assertThat(members()).isEqualTo(seeded);
+        // 벌크 쓰기로 기록 / 무효화된다.
+        assertThat(bulkRestoreEvents()).isEqualTo(bulkEvents + 2);
+        assertThat(dataVersionTracker.current()).isGreaterThan(version);
+
+        // 복원 후 저장하는 회원의 id 는 스냅샷의 id 와 겹치지 않는다.
+        Long restoredMaxId = (Long) seeded.get(seeded.size() - 1).get("MEMBER_ID");
+        Long newId = transactionTemplate.execute(status -> {
+            Member member = new Member("afterRestore", 1);
+            em.persist(member);
+            return member.getId();
+        });
+        assertThat(newId).isGreaterThan(restoredMaxId);
+    }
+
+    private List<Map<String, Object>> members() {
+        return jdbcTemplate.queryForList("select member_id, username, age, team_id, team_name from member"
+                + " where member_id > ? order by member_id", baseId);
+    }
+
+    private long bulkRestoreEvents() {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_event"
+                + " where change_type = 'BULK' and detail like '%csvread%'", Long.class);
+    }
+
+    private void deleteAfterBase() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.id > :base").setParameter("base", baseId).executeUpdate();
+            em.createQuery("delete from Team t where t.id > :base").setParameter("base", baseId).executeUpdate();
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+    }
+
+    @Test
+    public void notModified() throws Exception {
+        // given
+        String etag = mockMvc.perform(get("/v3/members").param("teamName", "teamA"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(etag).isNotNull();
+
+        // When
+        // Then
+        mockMvc.perform(get("/v3/members").param("teamName", "teamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/v3/members").param("teamName", "teamB").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void eTagFollowsNegotiatedType() throws Exception {
+        // given
+        String json = eTag(MediaType.APPLICATION_JSON_VALUE);
+
+        // When
+        // Then (Accept 문자열이 달라도 JSON 으로 응답하면 같은 ETag)
+        assertThat(eTag("application/json, text/plain;q=0.5")).isEqualTo(json);
+        assertThat(eTag("*/*")).isEqualTo(json);
+        assertThat(eTag(MemberTeamColumnarHttpMessageConverter.MEDIA_TYPE_VALUE)).isNotEqualTo(json);
+        assertThat(eTag("application/json;q=0.5, " + MemberTeamColumnarHttpMessageConverter.MEDIA_TYPE_VALUE))
+                .isEqualTo(eTag(MemberTeamColumnarHttpMessageConverter.MEDIA_TYPE_VALUE));
+    }
+
+    @Test
+    public void modifiedAfterWrite() throws Exception {
+        // given
+        String etag = mockMvc.perform(get("/v2/members"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When
+        em.persist(new Member("member3", 30));
+        em.flush();
+
+        // Then
+        mockMvc.perform(get("/v2/members").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void searchByPredicate() throws Exception {
+        // given
+        // When
+        // Then
+        mockMvc.perform(get("/v4/members").param("username", "member1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].username").value("member1"))
+                .andExpect(jsonPath("$.totalElements").value(1));
+
+        mockMvc.perform(get("/v4/members").param("age", "15", "25"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].username").value("member2"));
+
+        // 정렬은 인덱스가 있는 경로만
+        mockMvc.perform(get("/v4/members").param("sort", "age"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String eTag(String accept) throws Exception {
+        return mockMvc.perform(get("/v3/members").param("teamName", "teamA").header(HttpHeaders.ACCEPT, accept))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,106 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.dto.MemberTeamDto;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 실제 서버로 NDJSON 스트림을 받는다. R2DBC 커넥션은 JPA 트랜잭션 밖이므로 데이터를 커밋하고 끝나면 지운다.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "querydsl.reactive.enabled=true")
+class MemberReactiveControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("streamTeam");
+            em.persist(team);
+            for (int i = 0; i < 200; i++) {
+                em.persist(new Member("stream" + i, i, team));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'stream%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'stream%'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void streamNdjson() throws Exception {
+        // When
+        Flux<MemberTeamDto> body = webTestClient.get()
+                .uri("/v5/members?teamName=streamTeam&ageGoe=150")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(MemberTeamDto.class)
+                .getResponseBody();
+
+        // Then
+        StepVerifier.create(body)
+                .recordWith(ArrayList::new)
+                .expectNextCount(50)
+                .consumeRecordedWith(rows -> {
+                    assertThat(rows).allMatch(row -> row.getAge() >= 150);
+                    assertThat(rows).extracting("teamName").containsOnly("streamTeam");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void slowConsumerGetsEveryRow() throws Exception {
+        // When
+        // 한 건씩 천천히 요청해도 (back-pressure) 끊기지 않고 끝까지 온다.
+        Flux<MemberTeamDto> body = webTestClient.get()
+                .uri("/v5/members?teamName=streamTeam")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(MemberTeamDto.class)
+                .getResponseBody();
+
+        // Then
+        StepVerifier.create(body.limitRate(1).delayElements(Duration.ofMillis(1)))
+                .expectNextCount(200)
+                .verifyComplete();
+    }
+
+    @Test
+    public void page() throws Exception {
+        webTestClient.get()
+                .uri("/v5/members/page?teamName=streamTeam&page=1&size=30")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(30)
+                .jsonPath("$.totalElements").isEqualTo(200);
+    }
+}
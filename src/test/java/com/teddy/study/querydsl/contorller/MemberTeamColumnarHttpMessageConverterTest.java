@@ -0,0 +1,110 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.dto.MemberTeamColumns;
+import com.teddy.study.querydsl.dto.MemberTeamDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberTeamColumnarHttpMessageConverterTest {
+
+    MemberTeamColumnarHttpMessageConverter converter = new MemberTeamColumnarHttpMessageConverter();
+
+    @Test
+    public void nullsKeepTheirMarkers() throws Exception {
+        // given
+        List<MemberTeamDto> rows = Arrays.asList(
+                new MemberTeamDto(1L, "member1", 10, "teamA"),
+                new MemberTeamDto(null, null, 20, null),
+                new MemberTeamDto(3L, "member3", 30, "teamA"));
+
+        // When
+        DataInputStream in = decode(write(rows));
+
+        // Then
+        assertThat(in.readInt()).isEqualTo(0x4D544332);
+        assertThat(in.readInt()).isEqualTo(-1);
+        assertThat(in.readInt()).isEqualTo(3);
+        assertThat(in.readLong()).isEqualTo(3);
+        assertThat(in.readInt()).isEqualTo(3);
+
+        assertThat(in.readByte()).isEqualTo((byte) 0b101);
+        assertThat(new long[]{in.readLong(), in.readLong(), in.readLong()}).containsExactly(1, 0, 3);
+        assertThat(new String[]{readString(in), readString(in), readString(in)}).containsExactly("member1", null, "member3");
+        assertThat(new int[]{in.readInt(), in.readInt(), in.readInt()}).containsExactly(10, 20, 30);
+        assertThat(in.readInt()).isEqualTo(1);
+        assertThat(readString(in)).isEqualTo("teamA");
+        assertThat(new int[]{in.readInt(), in.readInt(), in.readInt()}).containsExactly(0, -1, 0);
+        assertThat(in.read()).isEqualTo(-1);
+    }
+
+    @Test
+    public void columnsEncodeLikeRows() throws Exception {
+        // given (비트맵이 두 바이트에 걸치도록 9 행)
+        MemberTeamColumns.Builder builder = MemberTeamColumns.builder();
+        for (int i = 0; i < 9; i++) {
+            builder.add(i + 1, "member" + i, i, i % 3 == 0 ? null : "team" + (i % 2));
+        }
+        MemberTeamColumns columns = builder.build();
+
+        // When
+        byte[] fromColumns = write(columns);
+        byte[] fromRows = write(new ArrayList<>(columns));
+
+        // Then
+        assertThat(fromColumns).isEqualTo(fromRows);
+        DataInputStream in = decode(fromColumns);
+        in.skipBytes(4 + 4 + 4 + 8 + 4);
+        assertThat(new byte[]{in.readByte(), in.readByte()}).containsExactly((byte) 0xFF, (byte) 0x01);
+    }
+
+    @Test
+    public void pageHeader() throws Exception {
+        // given
+        PageImpl<MemberTeamDto> page = new PageImpl<>(List.of(new MemberTeamDto(7L, "member7", 70, "teamB")),
+                PageRequest.of(2, 10), 21);
+
+        // When
+        DataInputStream in = decode(write(page));
+
+        // Then
+        assertThat(in.readInt()).isEqualTo(0x4D544332);
+        assertThat(in.readInt()).isEqualTo(2);
+        assertThat(in.readInt()).isEqualTo(10);
+        assertThat(in.readLong()).isEqualTo(21);
+        assertThat(in.readInt()).isEqualTo(1);
+        assertThat(in.readByte()).isEqualTo((byte) 1);
+        assertThat(in.readLong()).isEqualTo(7);
+    }
+
+    private byte[] write(Object body) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, null, MemberTeamColumnarHttpMessageConverter.MEDIA_TYPE, message);
+        return message.getBodyAsBytes();
+    }
+
+    private static DataInputStream decode(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.cache.OffHeapResponseCache;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheFilterTest {
+
+    OffHeapResponseCache cache = new OffHeapResponseCache(64 * 1024, 1, 1024, 4 * 1024);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ResponseCacheFilter filter = new ResponseCacheFilter(cache, new DataVersionTracker(), new SpringDataWebProperties(),
+            Set.of("/v3/members"), meterRegistry);
+
+    @Test
+    public void cacheKeyIgnoresParameterOrderAndDefaults() throws Exception {
+        // given
+        MockHttpServletRequest ordered = request("teamName", "teamA", "ageGoe", "10", "page", "0", "size", "20");
+        MockHttpServletRequest reordered = request("ageGoe", "10", "teamName", "teamA");
+        MockHttpServletRequest blankCondition = request("ageGoe", "10", "teamName", "teamA", "username", "");
+        MockHttpServletRequest otherPage = request("ageGoe", "10", "teamName", "teamA", "page", "1");
+
+        // When
+        String key = filter.cacheKey(ordered);
+
+        // Then
+        assertThat(key).isNotNull();
+        assertThat(filter.cacheKey(reordered)).isEqualTo(key);
+        assertThat(filter.cacheKey(blankCondition)).isEqualTo(key);
+        assertThat(filter.cacheKey(otherPage)).isNotEqualTo(key);
+    }
+
+    @Test
+    public void cacheKeyClampsPageSize() throws Exception {
+        // given (max-page-size 2000, 해석할 수 없는 size 는 기본값 20)
+        MockHttpServletRequest huge = request("size", "5000");
+        MockHttpServletRequest max = request("size", "2000");
+        MockHttpServletRequest invalid = request("size", "abc");
+        MockHttpServletRequest none = request();
+
+        // Then
+        assertThat(filter.cacheKey(huge)).isEqualTo(filter.cacheKey(max));
+        assertThat(filter.cacheKey(invalid)).isEqualTo(filter.cacheKey(none));
+        assertThat(filter.cacheKey(request("ageGoe", "ten"))).isNull();
+    }
+
+    @Test
+    public void smallResponseIsCachedAndReplayed() throws Exception {
+        // given
+        byte[] body = "[{\"username\":\"member1\"}]".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(request("teamName", "teamA"), first, writing(body));
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(request("teamName", "teamA"), second, (req, res) -> {
+            throw new AssertionError("cached response expected");
+        });
+
+        // Then
+        assertThat(first.getContentAsByteArray()).isEqualTo(body);
+        assertThat(second.getContentAsByteArray()).isEqualTo(body);
+        assertThat(second.getContentType()).isEqualTo("application/json");
+    }
+
+    @Test
+    public void largeResponseStreamsWithoutCaching() throws Exception {
+        // given (max-entry-size 4KB 보다 크다)
+        byte[] body = new byte[10 * 1024];
+        Arrays.fill(body, (byte) 'x');
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("teamName", "teamA"), response, writing(body));
+
+        // Then
+        assertThat(response.getContentAsByteArray()).isEqualTo(body);
+        assertThat(cache.size()).isZero();
+        assertThat(meterRegistry.get("member.search.response-cache").tag("result", "rejected").counter().count())
+                .isEqualTo(1);
+    }
+
+    private static MockHttpServletRequest request(String... parameters) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v3/members");
+        for (int i = 0; i < parameters.length; i += 2) {
+            request.addParameter(parameters[i], parameters[i + 1]);
+        }
+        return request;
+    }
+
+    private static FilterChain writing(byte[] body) {
+        return (request, response) -> {
+            response.setContentType("application/json");
+            // 큰 응답은 여러 번에 나눠 쓴다.
+            for (int offset = 0; offset < body.length; offset += 1024) {
+                response.getOutputStream().write(body, offset, Math.min(1024, body.length - offset));
+            }
+        };
+    }
+}
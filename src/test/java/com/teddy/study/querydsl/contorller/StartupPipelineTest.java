@@ -0,0 +1,92 @@
+package com.teddy.study.querydsl.contorller;
+
+import com.teddy.study.querydsl.cache.UsernameFilter;
+import com.teddy.study.querydsl.cache.UsernameNgramIndex;
+import com.teddy.study.querydsl.config.StartupProperties;
+import com.teddy.study.querydsl.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class StartupPipelineTest {
+
+    InitMember initMember = mock(InitMember.class);
+    UsernameFilter usernameFilter = mock(UsernameFilter.class);
+    UsernameNgramIndex usernameIndex = mock(UsernameNgramIndex.class);
+    MemberRepository memberRepository = mock(MemberRepository.class);
+
+    @Test
+    public void readinessDownUntilPipelineFinishes() throws Exception {
+        // given (초기 데이터 적재가 끝나지 않은 상태)
+        CountDownLatch seeding = new CountDownLatch(1);
+        doAnswer(invocation -> seeding.await(10, TimeUnit.SECONDS)).when(initMember).init();
+        StartupPipeline pipeline = pipeline(2);
+
+        // When
+        pipeline.onStarted();
+
+        // Then
+        assertThat(pipeline.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        verify(usernameFilter, never()).rebuild();
+
+        seeding.countDown();
+        pipeline.awaitWarm(Duration.ofSeconds(10));
+        assertThat(pipeline.health().getStatus()).isEqualTo(Status.UP);
+        verify(usernameFilter).rebuild();
+        verify(usernameIndex).rebuild();
+        verify(memberRepository, times(2)).search(any());
+    }
+
+    @Test
+    public void failedPipelineStaysOutOfRotation() throws Exception {
+        // given
+        doThrow(new IllegalStateException("seed failed")).when(initMember).init();
+        StartupPipeline pipeline = pipeline(2);
+
+        // When
+        pipeline.onStarted();
+
+        // Then
+        assertThatThrownBy(() -> pipeline.awaitWarm(Duration.ofSeconds(10))).isInstanceOf(ExecutionException.class);
+        assertThat(pipeline.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(pipeline.isWarm()).isFalse();
+    }
+
+    @Test
+    public void noWarmupQueriesWhenDisabled() throws Exception {
+        // given
+        StartupPipeline pipeline = pipeline(0);
+
+        // When
+        pipeline.onStarted();
+        pipeline.awaitWarm(Duration.ofSeconds(10));
+
+        // Then
+        assertThat(pipeline.health().getStatus()).isEqualTo(Status.UP);
+        verify(memberRepository, never()).search(any());
+    }
+
+    private StartupPipeline pipeline(int warmupQueries) {
+        StartupProperties properties = new StartupProperties();
+        properties.setWarmupQueries(warmupQueries);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("initMember", initMember);
+        return new StartupPipeline(beans.getBeanProvider(InitMember.class), usernameFilter, usernameIndex,
+                memberRepository, properties);
+    }
+}
@@ -49,4 +49,21 @@ class MemberTest {
         assertThat(members.size()).isEqualTo(4);
 
     }
+
+    @Test
+    public void changeTeamMovesTeamName() {
+        // given
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        Member member = new Member("member1", 10, teamA);
+
+        // When
+        member.changeTeam(teamB);
+
+        // Then
+        assertThat(member.getTeam()).isSameAs(teamB);
+        assertThat(member.getTeamName()).isEqualTo("TeamB");
+        assertThat(teamA.getMembers()).doesNotContain(member);
+        assertThat(teamB.getMembers()).containsExactly(member);
+    }
 }
\ No newline at end of file
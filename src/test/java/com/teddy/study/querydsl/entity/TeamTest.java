@@ -0,0 +1,70 @@
+package com.teddy.study.querydsl.entity;
+
+import com.teddy.study.querydsl.repository.MemberRepository;
+import com.teddy.study.querydsl.repository.TeamMemberIterator;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TeamTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void addMemberWithoutLoading() {
+        // given
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        // When
+        Team findTeam = em.find(Team.class, teamA.getId());
+        Member newMember = new Member("member5", 5, findTeam);
+        em.persist(newMember);
+
+        // Then
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+        assertThat(findTeam.memberCount()).isEqualTo(6);
+        assertThat(findTeam.hasMember(newMember)).isTrue();
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+    }
+
+    @Test
+    public void iterateMembers() {
+        // given
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        // When
+        Team findTeam = em.find(Team.class, teamA.getId());
+        List<Integer> pageSizes = new ArrayList<>();
+        new TeamMemberIterator(memberRepository, findTeam, 2).forEachRemaining(page -> pageSizes.add(page.size()));
+
+        // Then
+        assertThat(pageSizes).containsExactly(2, 2, 1);
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+    }
+}
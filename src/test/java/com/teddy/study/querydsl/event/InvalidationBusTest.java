@@ -0,0 +1,202 @@
+package com.teddy.study.querydsl.event;
+
+import com.teddy.study.querydsl.cache.UsernameFilter;
+import com.teddy.study.querydsl.cache.UsernameNgramIndex;
+import com.teddy.study.querydsl.support.DataVersionTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class InvalidationBusTest {
+
+    LoopbackInvalidationTransport transportA;
+    LoopbackInvalidationTransport transportB;
+    InvalidationBus busA;
+    InvalidationBus busB;
+    List<Map<String, Long>> receivedByB = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void before() throws Exception {
+        transportA = new LoopbackInvalidationTransport(0);
+        transportB = new LoopbackInvalidationTransport(0);
+        transportA.addPeer(transportB.getLocalPort());
+        transportB.addPeer(transportA.getLocalPort());
+
+        busA = new InvalidationBus(transportA, List.of(), Duration.ofMillis(20), Duration.ZERO);
+        busB = new InvalidationBus(transportB, List.of(receivedByB::add), Duration.ofMillis(20), Duration.ZERO);
+        busA.start();
+        busB.start();
+    }
+
+    @AfterEach
+    public void after() {
+        busA.close();
+        busB.close();
+        transportA.close();
+        transportB.close();
+    }
+
+    @Test
+    public void coalescedAndVersioned() throws Exception {
+        // given
+        busA.publish("member", 3);
+        busA.publish("member", 5);
+        busA.publish("team", 4);
+
+        // When
+        awaitApplied("member", 5L);
+
+        // Then
+        // 같은 창 안의 publish 는 한 메시지로 합쳐지고, 키마다 가장 큰 버전만 간다.
+        assertThat(receivedByB).containsExactly(Map.of("member", 5L, "team", 4L));
+
+        // 이미 본 버전 이하는 다시 알리지 않는다.
+        busA.publish("member", 4);
+        busA.publish("team", 6);
+        awaitApplied("team", 6L);
+        assertThat(receivedByB).last().isEqualTo(Map.of("team", 6L));
+        assertThat(busB.appliedVersions()).containsEntry("member", 5L);
+    }
+
+    private void awaitApplied(String key, long version) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!Long.valueOf(version).equals(busB.appliedVersions().get(key)) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void multipleSenders() throws Exception {
+        // given
+        Hub hub = new Hub();
+        List<Map<String, Long>> receivedByA = new CopyOnWriteArrayList<>();
+        try (InvalidationBus a = hub.bus(List.of(receivedByA::add), Duration.ZERO);
+             InvalidationBus b = hub.bus(List.of(), Duration.ZERO);
+             InvalidationBus c = hub.bus(List.of(), Duration.ZERO)) {
+
+            // When
+            // 노드마다 버전 카운터가 따로라 C 의 큰 버전 뒤에 B 의 작은 버전이 와도 B 의 쓰기다.
+            c.publish("member", 10);
+            await(() -> Long.valueOf(10).equals(a.appliedVersions(c.nodeId()).get("member")));
+            b.publish("member", 3);
+            await(() -> Long.valueOf(3).equals(a.appliedVersions(b.nodeId()).get("member")));
+
+            // Then
+            assertThat(receivedByA).containsExactly(Map.of("member", 10L), Map.of("member", 3L));
+            assertThat(a.appliedVersions()).containsEntry("member", 10L);
+        }
+    }
+
+    @Test
+    public void droppedMessageRepairedByAntiEntropy() throws Exception {
+        // given
+        Hub hub = new Hub();
+        List<Map<String, Long>> receivedByA = new CopyOnWriteArrayList<>();
+        try (InvalidationBus a = hub.bus(List.of(receivedByA::add), Duration.ZERO);
+             InvalidationBus b = hub.bus(List.of(), Duration.ofMillis(50))) {
+            hub.dropNext.set(1);
+
+            // When
+            b.publish("team", 7);
+            await(() -> Long.valueOf(7).equals(a.appliedVersions(b.nodeId()).get("team")));
+
+            // Then
+            assertThat(hub.dropped.get()).isEqualTo(1);
+            // 다시 보낸 메시지는 한 번만 반영된다.
+            Thread.sleep(150);
+            assertThat(receivedByA).containsExactly(Map.of("team", 7L));
+        }
+    }
+
+    @Test
+    public void remoteInvalidationBumpsVersionAndEvictsCaches() throws Exception {
+        // given
+        DataVersionTracker tracker = new DataVersionTracker();
+        for (int i = 0; i < 20; i++) {
+            tracker.bump();
+        }
+        UsernameFilter usernameFilter = mock(UsernameFilter.class);
+        UsernameNgramIndex usernameIndex = mock(UsernameNgramIndex.class);
+        RemoteInvalidationHandler handler = new RemoteInvalidationHandler(tracker, usernameFilter, usernameIndex);
+
+        Hub hub = new Hub();
+        try (InvalidationBus local = hub.bus(List.of(handler), Duration.ZERO);
+             InvalidationBus remote = hub.bus(List.of(), Duration.ZERO)) {
+
+            // When
+            // 로컬 버전(20)이 받은 버전(5)보다 커도 올라가야 기존 ETag / 캐시 항목이 무효가 된다.
+            remote.publish("team", 5);
+            await(() -> tracker.current() > 20);
+
+            // Then
+            assertThat(tracker.current()).isEqualTo(21);
+            verify(usernameFilter, never()).invalidate();
+
+            remote.publish("member", 100);
+            await(() -> tracker.current() >= 100);
+            assertThat(tracker.current()).isEqualTo(100);
+            verify(usernameFilter, times(1)).invalidate();
+            verify(usernameIndex, times(1)).invalidate();
+        }
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 같은 JVM 안의 버스끼리 바로 전달하고, 지정한 수만큼 메시지를 버린다.
+     */
+    static class Hub {
+
+        final List<Consumer<byte[]>> receivers = new CopyOnWriteArrayList<>();
+        final AtomicInteger dropNext = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+
+        InvalidationBus bus(List<InvalidationListener> listeners, Duration antiEntropy) throws IOException {
+            InvalidationBus bus = new InvalidationBus(new InvalidationTransport() {
+                @Override
+                public void start(Consumer<byte[]> receiver) {
+                    receivers.add(receiver);
+                }
+
+                @Override
+                public void send(byte[] message) {
+                    if (dropNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    // 보낸 노드 자신의 메시지는 버스가 걸러낸다.
+                    for (Consumer<byte[]> receiver : new ArrayList<>(receivers)) {
+                        receiver.accept(message);
+                    }
+                }
+
+                @Override
+                public void close() {
+                }
+            }, listeners, Duration.ofMillis(5), antiEntropy);
+            bus.start();
+            return bus;
+        }
+    }
+}
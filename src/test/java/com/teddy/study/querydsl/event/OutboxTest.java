@@ -0,0 +1,233 @@
+package com.teddy.study.querydsl.event;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.teddy.study.querydsl.config.OutboxProperties;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static com.teddy.study.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// 커밋된 변경만 전달되는지 보려면 실제로 커밋해야 하므로 @Transactional 대신 TransactionTemplate 을 쓰고, 끝나면 지운다.
+@SpringBootTest
+class OutboxTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    OutboxStore outboxStore;
+
+    @Autowired
+    OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    OutboxProperties outboxProperties;
+
+    @Autowired
+    RecordingSubscriber subscriber;
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        RecordingSubscriber recordingSubscriber() {
+            return new RecordingSubscriber();
+        }
+    }
+
+    static class RecordingSubscriber implements EntityChangeSubscriber {
+
+        final List<EntityChange> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onChanges(List<EntityChange> changes) {
+            received.addAll(changes);
+        }
+    }
+
+    @BeforeEach
+    void drain() {
+        while (outboxDispatcher.dispatch() > 0) {
+            // 이전에 쌓인 변경은 비운다.
+        }
+        subscriber.received.clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'outbox%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'outbox%'").executeUpdate();
+        });
+        drain();
+    }
+
+    @Test
+    public void entityAndBulkChanges() throws Exception {
+        // given
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team teamA = new Team("outboxTeamA");
+            em.persist(teamA);
+            Member member1 = new Member("outbox1", 10, teamA);
+            em.persist(member1);
+            em.flush();
+
+            member1.setAge(11);
+            em.flush();
+
+            // When
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory
+                    .update(member)
+                    .set(member.age, member.age.add(1))
+                    .where(member.username.startsWith("outbox"))
+                    .execute();
+            queryFactory
+                    .delete(member)
+                    .where(member.username.startsWith("outbox"), member.age.gt(18))
+                    .execute();
+            return new Long[]{teamA.getId(), member1.getId()};
+        });
+
+        // Then
+        assertThat(outboxStore.count()).isEqualTo(5);
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(5);
+        assertThat(outboxStore.count()).isZero();
+
+        assertThat(subscriber.received)
+                .extracting(EntityChange::getEntityType, EntityChange::getEntityId, EntityChange::getChangeType)
+                .containsExactly(
+                        tuple("Team", ids[0], ChangeType.INSERT),
+                        tuple("Member", ids[1], ChangeType.INSERT),
+                        tuple("Member", ids[1], ChangeType.UPDATE),
+                        tuple("Member", null, ChangeType.BULK),
+                        tuple("Member", null, ChangeType.BULK));
+        assertThat(subscriber.received.get(2).getDetail()).isEqualTo("age");
+    }
+
+    @Test
+    public void onlyCommittedChangesAreDelivered() throws Exception {
+        // given
+        TransactionTemplate writer = new TransactionTemplate(transactionManager);
+
+        // When
+        writer.executeWithoutResult(status -> {
+            em.persist(new Team("outboxUncommitted"));
+            em.flush();
+            // 아직 커밋 전: 다른 스레드(다른 트랜잭션)의 dispatch 에는 보이지 않는다.
+            assertThat(CompletableFuture.supplyAsync(outboxDispatcher::dispatch).join()).isZero();
+        });
+        writer.executeWithoutResult(status -> {
+            em.persist(new Team("outboxRolledBack"));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        // Then
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(1);
+        assertThat(subscriber.received).hasSize(1);
+        assertThat(subscriber.received.get(0).getChangeType()).isEqualTo(ChangeType.INSERT);
+    }
+
+    @Test
+    public void undeliveredChangesAreReplayedAfterRestart() throws Exception {
+        // given
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Team("outboxReplay")));
+
+        // 구독자가 실패하는 인스턴스: 지우지 않고 점유를 푼다.
+        OutboxDispatcher failing = dispatcher(changes -> {
+            throw new IllegalStateException("subscriber down");
+        });
+        assertThatThrownBy(failing::dispatch).isInstanceOf(IllegalStateException.class);
+        assertThat(outboxStore.count()).isEqualTo(1);
+
+        // 점유한 채로 죽은 인스턴스: claim-timeout 이 지나면 다른 인스턴스가 가져간다.
+        transactionTemplate.executeWithoutResult(status ->
+                outboxStore.claim("crashed", 10, Instant.now().plusMillis(200)));
+        OutboxDispatcher restarted = dispatcher(subscriber);
+        assertThat(restarted.dispatch()).isZero();
+
+        // When
+        Thread.sleep(300);
+        int delivered = restarted.dispatch();
+
+        // Then
+        assertThat(delivered).isEqualTo(1);
+        assertThat(outboxStore.count()).isZero();
+        assertThat(subscriber.received)
+                .extracting(EntityChange::getEntityType, EntityChange::getChangeType)
+                .containsExactly(tuple("Team", ChangeType.INSERT));
+    }
+
+    // 재시작한 인스턴스처럼 owner 가 다른 dispatcher
+    private OutboxDispatcher dispatcher(EntityChangeSubscriber... subscribers) {
+        List<EntityChangeSubscriber> targets = List.of(subscribers);
+        OutboxProperties properties = new OutboxProperties();
+        properties.setBatchSize(outboxProperties.getBatchSize());
+        properties.setClaimTimeout(Duration.ofSeconds(5));
+        return new OutboxDispatcher(outboxStore, new FixedProvider(targets), transactionManager, properties,
+                new SimpleMeterRegistry());
+    }
+
+    static class FixedProvider implements ObjectProvider<EntityChangeSubscriber> {
+
+        private final List<EntityChangeSubscriber> targets;
+
+        FixedProvider(List<EntityChangeSubscriber> targets) {
+            this.targets = targets;
+        }
+
+        @Override
+        public EntityChangeSubscriber getObject(Object... args) {
+            return targets.get(0);
+        }
+
+        @Override
+        public EntityChangeSubscriber getIfAvailable() {
+            return targets.isEmpty() ? null : targets.get(0);
+        }
+
+        @Override
+        public EntityChangeSubscriber getIfUnique() {
+            return getIfAvailable();
+        }
+
+        @Override
+        public EntityChangeSubscriber getObject() {
+            return targets.get(0);
+        }
+
+        @Override
+        public Stream<EntityChangeSubscriber> orderedStream() {
+            return targets.stream();
+        }
+    }
+}
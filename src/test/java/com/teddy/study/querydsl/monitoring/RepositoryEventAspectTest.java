@@ -0,0 +1,113 @@
+package com.teddy.study.querydsl.monitoring;
+
+import com.teddy.study.querydsl.repository.MemberJpaRepository;
+import com.teddy.study.querydsl.repository.MemberRepositoryImpl;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RepositoryEventAspectTest {
+
+    RepositoryEventAspect aspect = new RepositoryEventAspect();
+
+    @Test
+    public void notRecordingSkipsTimings() throws Throwable {
+        // given
+        List<QueryTimings> seen = new ArrayList<>();
+        ProceedingJoinPoint joinPoint = joinPoint(MemberRepositoryImpl.class, "search", () -> {
+            seen.add(QueryTimings.current());
+            return List.of();
+        });
+
+        // When
+        aspect.record(joinPoint);
+
+        // Then
+        verify(joinPoint).proceed();
+        assertThat(seen).containsOnlyNulls();
+    }
+
+    @Test
+    public void nestedCallCountsTowardsOuter() throws Throwable {
+        // given (바깥 호출이 SQL 하나를 실행하고, 안쪽 호출이 SQL 둘을 실행한다)
+        ProceedingJoinPoint inner = joinPoint(MemberRepositoryImpl.class, "search", () -> {
+            statement();
+            statement();
+            return List.of("a", "b");
+        });
+        ProceedingJoinPoint outer = joinPoint(MemberJpaRepository.class, "findAll", () -> {
+            statement();
+            return aspect.record(inner);
+        });
+
+        // When
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(RepositoryCallEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            aspect.record(outer);
+            recording.stop();
+
+            Path file = Files.createTempFile("repository-call", ".jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+            Files.delete(file);
+        }
+
+        // Then
+        Map<String, RecordedEvent> byMethod = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.teddy.study.querydsl.RepositoryCall"))
+                .collect(Collectors.toMap(event -> event.getString("method"), Function.identity()));
+        assertThat(byMethod).containsOnlyKeys("MemberJpaRepository.findAll", "MemberRepositoryImpl.search");
+
+        RecordedEvent outerEvent = byMethod.get("MemberJpaRepository.findAll");
+        RecordedEvent innerEvent = byMethod.get("MemberRepositoryImpl.search");
+        assertThat(innerEvent.getInt("statementCount")).isEqualTo(2);
+        assertThat(innerEvent.getLong("rowCount")).isEqualTo(2);
+        assertThat(outerEvent.getInt("statementCount")).isEqualTo(3);
+        assertThat(outerEvent.getLong("sqlTime")).isGreaterThanOrEqualTo(innerEvent.getLong("sqlTime"));
+        assertThat(QueryTimings.current()).isNull();
+    }
+
+    // QueryTimingSessionListener 가 받는 순서대로 부른다.
+    private static void statement() throws InterruptedException {
+        QueryTimings timings = QueryTimings.current();
+        timings.prepareStart();
+        timings.prepareEnd();
+        timings.executeStart();
+        Thread.sleep(5);
+        timings.executeEnd();
+    }
+
+    private static ProceedingJoinPoint joinPoint(Class<?> type, String method, Call call) throws Throwable {
+        Signature signature = mock(Signature.class);
+        when(signature.getName()).thenReturn(method);
+        when(signature.getDeclaringType()).thenReturn(type);
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getArgs()).thenReturn(new Object[0]);
+        when(joinPoint.proceed()).thenAnswer(invocation -> call.proceed());
+        return joinPoint;
+    }
+
+    private interface Call {
+        Object proceed() throws Throwable;
+    }
+}
@@ -0,0 +1,155 @@
+package com.teddy.study.querydsl.monitoring;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracingDataSourceTest {
+
+    SingleConnectionDataSource h2;
+    SqlTraceBuffer buffer = new SqlTraceBuffer(16);
+
+    @BeforeEach
+    public void before() throws Exception {
+        h2 = new SingleConnectionDataSource("jdbc:h2:mem:trace;DB_CLOSE_DELAY=-1", "sa", "", true);
+        try (Connection connection = h2.getConnection()) {
+            connection.createStatement().execute("create table if not exists t (id bigint, name varchar(20))");
+        }
+    }
+
+    @AfterEach
+    public void after() {
+        h2.destroy();
+    }
+
+    @Test
+    public void disabledKeepsRawDataSource() throws Exception {
+        // given
+        SqlTraceProperties off = properties(0, Duration.ZERO);
+        SqlTraceProperties disabled = properties(1, Duration.ofMillis(200));
+        disabled.setEnabled(false);
+
+        // When
+        Object whenOff = postProcessor(off).postProcessAfterInitialization(h2, "dataSource");
+        Object whenDisabled = postProcessor(disabled).postProcessAfterInitialization(h2, "dataSource");
+        Object whenOn = postProcessor(properties(0.01, Duration.ofMillis(200)))
+                .postProcessAfterInitialization(h2, "dataSource");
+
+        // Then
+        assertThat(whenOff).isSameAs(h2);
+        assertThat(whenDisabled).isSameAs(h2);
+        assertThat(whenOn).isInstanceOf(TracingDataSource.class);
+    }
+
+    @Test
+    public void sampledStatementRecordsBinds() throws Exception {
+        // given
+        DataSource dataSource = new TracingDataSource(h2, properties(1, Duration.ZERO), buffer);
+
+        // When
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select * from t where id = ? and name = ?")) {
+            statement.setLong(1, 7L);
+            statement.setString(2, "member1");
+            try (ResultSet ignored = statement.executeQuery()) {
+                assertThat(statement.getConnection()).isSameAs(connection);
+            }
+        }
+
+        // Then
+        List<SqlTrace> traces = buffer.snapshot();
+        assertThat(traces).hasSize(1);
+        assertThat(traces.get(0).getSql()).isEqualTo("select * from t where id = ? and name = ?");
+        assertThat(traces.get(0).getBinds()).containsExactly("7", "member1");
+        assertThat(traces.get(0).isSlow()).isFalse();
+    }
+
+    @Test
+    public void unsampledStatementIsNotWrapped() throws Exception {
+        // given
+        DataSource dataSource = new TracingDataSource(h2, properties(0, Duration.ZERO), buffer);
+
+        // When
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select * from t")) {
+            statement.executeQuery().close();
+
+            // Then
+            assertThat(statement).isNotInstanceOf(TracingPreparedStatement.class);
+        }
+        assertThat(buffer.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void slowStatementRecordedWithoutSampling() throws Exception {
+        // given
+        DataSource dataSource = new TracingDataSource(h2, properties(0, Duration.ofNanos(1)), buffer);
+
+        // When
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select * from t where id = ?")) {
+            statement.setNull(1, java.sql.Types.BIGINT);
+            statement.executeQuery().close();
+        }
+
+        // Then
+        List<SqlTrace> traces = buffer.snapshot();
+        assertThat(traces).hasSize(1);
+        assertThat(traces.get(0).isSlow()).isTrue();
+        assertThat(traces.get(0).getBinds()).containsExactly("null");
+    }
+
+    @Test
+    public void bindArrayReusedAcrossStatements() throws Exception {
+        // given
+        DataSource dataSource = new TracingDataSource(h2, properties(1, Duration.ZERO), buffer);
+
+        try (Connection connection = dataSource.getConnection()) {
+            TracingConnection tracing = connection.unwrap(TracingConnection.class);
+            Object[] shared = tracing.borrowBinds(1);
+            tracing.returnBinds(shared, 0);
+
+            // When
+            Object[] whileOpen;
+            try (PreparedStatement statement = connection.prepareStatement("select * from t where id = ?")) {
+                statement.setLong(1, 1L);
+                whileOpen = tracing.borrowBinds(1);
+                statement.executeQuery().close();
+            }
+            Object[] afterClose = tracing.borrowBinds(1);
+
+            // Then
+            assertThat(whileOpen).isNotSameAs(shared);
+            assertThat(afterClose).isSameAs(shared);
+            assertThat(afterClose[0]).isNull();
+            assertThat(buffer.snapshot().get(0).getBinds()).containsExactly("1");
+        }
+    }
+
+    private static SqlTraceProperties properties(double sampleRate, Duration slowThreshold) {
+        SqlTraceProperties properties = new SqlTraceProperties();
+        properties.setSampleRate(sampleRate);
+        properties.setSlowThreshold(slowThreshold);
+        return properties;
+    }
+
+    private BeanPostProcessor postProcessor(SqlTraceProperties properties) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("sqlTraceProperties", properties);
+        beans.addBean("sqlTraceBuffer", buffer);
+        return SqlTraceConfig.tracingDataSourcePostProcessor(
+                beans.getBeanProvider(SqlTraceProperties.class), beans.getBeanProvider(SqlTraceBuffer.class));
+    }
+}
@@ -0,0 +1,134 @@
+package com.teddy.study.querydsl.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 구간마다 새 트랜잭션으로 읽으므로 데이터를 커밋하고 끝나면 지운다.
+@SpringBootTest(properties = {"querydsl.export.parallelism=3", "querydsl.export.partition-rows=2"})
+class MemberExporterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberExporter memberExporter;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'export%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'export%'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void exportInOrder() throws Exception {
+        // given
+        persistMembers(7);
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        memberExporter.exportTo(out);
+
+        // Then
+        List<JsonNode> rows = exported(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertThat(rows).extracting(row -> row.get("username").asText())
+                .containsExactly("export0", "export1", "export2", "export3", "export4", "export5", "export6");
+        assertThat(rows).extracting(row -> row.get("teamName").asText()).containsOnly("exportTeam");
+    }
+
+    @Test
+    public void exportChunks(@TempDir Path directory) throws Exception {
+        // given
+        persistMembers(7);
+
+        // When
+        List<Path> files = memberExporter.exportChunks(directory);
+
+        // Then
+        assertThat(files.size()).isGreaterThanOrEqualTo(3);
+        StringBuilder all = new StringBuilder();
+        for (Path file : files) {
+            all.append(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+        assertThat(exported(all.toString())).hasSize(7);
+    }
+
+    @Test
+    public void disconnectedClientStopsExport() throws Exception {
+        // given
+        persistMembers(7);
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // When
+        assertThatThrownBy(() -> memberExporter.exportTo(disconnected))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Broken pipe");
+
+        // Then (남은 구간은 취소되고 공유 스레드 풀은 다음 내보내기에 그대로 쓰인다)
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        memberExporter.exportTo(out);
+        assertThat(exported(new String(out.toByteArray(), StandardCharsets.UTF_8))).hasSize(7);
+    }
+
+    private void persistMembers(int count) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("exportTeam");
+            em.persist(team);
+            for (int i = 0; i < count; i++) {
+                em.persist(new Member("export" + i, i, team));
+            }
+        });
+    }
+
+    private List<JsonNode> exported(String ndjson) throws Exception {
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            JsonNode row = objectMapper.readTree(line);
+            if (row.get("username").asText().startsWith("export")) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
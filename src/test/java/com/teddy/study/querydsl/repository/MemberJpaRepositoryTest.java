@@ -1,17 +1,23 @@
 package com.teddy.study.querydsl.repository;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.dto.MemberTeamColumns;
 import com.teddy.study.querydsl.dto.MemberTeamDto;
 import com.teddy.study.querydsl.entity.Member;
 import com.teddy.study.querydsl.entity.Team;
+import com.teddy.study.querydsl.support.QueryBudget;
+import com.teddy.study.querydsl.support.QueryBudgetConfig;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
@@ -20,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @Transactional
+@Import(QueryBudgetConfig.class)
 class MemberJpaRepositoryTest {
 
     @Autowired
@@ -28,6 +35,12 @@ class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    QueryBudget queryBudget;
+
     @Test
     public void basicTest() throws Exception {
         // given
@@ -98,4 +111,62 @@ class MemberJpaRepositoryTest {
         // Then
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchColumns() throws Exception {
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 40; i++) {
+            em.persist(new Member("member" + i, i, i % 4 == 0 ? null : teamA));
+        }
+
+        // When
+        MemberTeamColumns result = memberJpaRepository.search(new MemberSearchCondition());
+
+        // Then
+        assertThat(result).hasSize(40);
+        assertThat(result.getTeamNames()).containsExactly("teamA");
+        assertThat(result).extracting("teamName").containsOnly("teamA", null);
+
+        // 컬럼에서 바로 쓴 JSON 과 DTO 목록의 JSON 이 같다.
+        List<MemberTeamDto> rows = new ArrayList<>(result);
+        assertThat(objectMapper.writeValueAsString(result)).isEqualTo(objectMapper.writeValueAsString(rows));
+
+        // 행은 읽기 전용 뷰다. 같은 행이면 같고, 값을 바꿀 수 없다.
+        MemberTeamDto first = result.get(0);
+        assertThat(first).isEqualTo(result.get(0));
+        assertThat(first).isEqualTo(new MemberTeamDto(first.getMemberId(), first.getUsername(), first.getAge(), first.getTeamName()));
+        assertThatThrownBy(() -> first.setAge(99)).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(result.get(0).getAge()).isEqualTo(first.getAge());
+    }
+
+    @Test
+    public void searchBudget() throws Exception {
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        // When
+        // Then
+        // 조인 한 번으로 끝나고(N+1 없음) 행마다 DTO 를 만들지 않는다.
+        MemberTeamColumns result = queryBudget.expect()
+                .maxStatements(1)
+                .maxRows(100)
+                .maxEntitiesLoaded(0)
+                .maxAllocatedBytes(4 * 1024 * 1024)
+                .run(() -> memberJpaRepository.search(new MemberSearchCondition()));
+        assertThat(result).hasSize(100);
+
+        // 엔티티 조회는 팀을 지연 로딩으로 남겨 둔다.
+        queryBudget.expect()
+                .maxStatements(1)
+                .maxEntitiesLoaded(100)
+                .run(() -> memberJpaRepository.searchMember(new MemberSearchCondition()));
+    }
+}
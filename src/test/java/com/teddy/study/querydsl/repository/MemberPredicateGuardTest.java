@@ -0,0 +1,43 @@
+package com.teddy.study.querydsl.repository;
+
+import com.teddy.study.querydsl.config.PredicateGuardProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import static com.teddy.study.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberPredicateGuardTest {
+
+    @Test
+    public void predicateGuard() throws Exception {
+        // given
+        PredicateGuardProperties properties = new PredicateGuardProperties();
+        properties.setMaxEstimatedRows(100);
+        MemberPredicateGuard guard = new MemberPredicateGuard(properties);
+        PageRequest page = PageRequest.of(0, 10);
+
+        // When
+        // Then
+        // 인덱스 조건이 있으면 그 조건으로 좁혀진다.
+        assertThat(guard.check(member.username.eq("member1").and(member.age.goe(10)), page, 100_000)).isEqualTo(1);
+        assertThat(guard.check(member.id.in(1L, 2L, 3L), page, 100_000)).isEqualTo(3);
+
+        // 인덱스 없는 조건만 있으면 전체 행
+        assertThatThrownBy(() -> guard.check(member.age.goe(10), page, 100_000))
+                .isInstanceOf(PredicateRejectedException.class);
+        // 허용하지 않은 연산자, 정렬, 페이지 크기
+        assertThatThrownBy(() -> guard.check(member.username.contains("1"), page, 10))
+                .isInstanceOf(PredicateRejectedException.class);
+        assertThatThrownBy(() -> guard.check(member.id.eq(1L), PageRequest.of(0, 10, Sort.by("age")), 10))
+                .isInstanceOf(PredicateRejectedException.class);
+        assertThatThrownBy(() -> guard.check(member.id.eq(1L), PageRequest.of(0, 1000), 10))
+                .isInstanceOf(PredicateRejectedException.class);
+        // 중첩 깊이
+        assertThatThrownBy(() -> guard.check(member.id.eq(1L).and(member.id.eq(2L).or(member.id.eq(3L)
+                .and(member.id.eq(4L).or(member.id.eq(5L).and(member.id.eq(6L).not()))))), page, 10))
+                .isInstanceOf(PredicateRejectedException.class);
+    }
+}
@@ -0,0 +1,92 @@
+package com.teddy.study.querydsl.repository;
+
+import com.teddy.study.querydsl.dto.MemberSearchCondition;
+import com.teddy.study.querydsl.dto.MemberTeamDto;
+import com.teddy.study.querydsl.entity.Member;
+import com.teddy.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// R2DBC 커넥션은 JPA 트랜잭션 밖이므로 데이터를 커밋하고 끝나면 지운다.
+@SpringBootTest(properties = "querydsl.reactive.enabled=true")
+class MemberReactiveRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberReactiveRepository memberReactiveRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'reactive%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'reactive%'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void search() throws Exception {
+        // given
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("reactiveTeamA");
+            Team teamB = new Team("reactiveTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("reactive1", 10, teamA));
+            em.persist(new Member("reactive2", 20, teamA));
+            em.persist(new Member("reactive3", 30, teamB));
+            em.persist(new Member("reactive4", 40, teamB));
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameStartsWith("reactive");
+        condition.setAgeGoe(20);
+        condition.setTeamName("reactiveTeamB");
+
+        // When
+        List<MemberTeamDto> result = memberReactiveRepository.search(condition).collectList().block();
+
+        // Then
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("reactive3", "reactive4");
+        assertThat(result).extracting("teamName").containsOnly("reactiveTeamB");
+    }
+
+    @Test
+    public void searchPageComplex() throws Exception {
+        // given
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("reactiveTeamA");
+            em.persist(teamA);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("reactive" + i, i, teamA));
+            }
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("reactiveTeamA");
+
+        // When
+        Page<MemberTeamDto> first = memberReactiveRepository.searchPageComplex(condition, PageRequest.of(0, 3)).block();
+        Page<MemberTeamDto> last = memberReactiveRepository.searchPageComplex(condition, PageRequest.of(1, 3)).block();
+
+        // Then
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(first.getTotalElements()).isEqualTo(5);
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.getTotalElements()).isEqualTo(5);
+    }
+}
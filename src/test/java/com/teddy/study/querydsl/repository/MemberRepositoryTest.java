@@ -1,25 +1,35 @@
 package com.teddy.study.querydsl.repository;
 
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.teddy.study.querydsl.cache.UsernameNgramIndex;
+import com.teddy.study.querydsl.dto.EstimatedPage;
 import com.teddy.study.querydsl.dto.MemberSearchCondition;
 import com.teddy.study.querydsl.dto.MemberTeamDto;
 import com.teddy.study.querydsl.entity.Member;
 import com.teddy.study.querydsl.entity.QMember;
 import com.teddy.study.querydsl.entity.Team;
+import com.teddy.study.querydsl.support.QueryBudget;
+import com.teddy.study.querydsl.support.QueryBudgetConfig;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import java.util.List;
 
 import static com.teddy.study.querydsl.entity.QMember.member;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
+@Import(QueryBudgetConfig.class)
 class MemberRepositoryTest {
 
     @Autowired
@@ -27,7 +37,22 @@ class MemberRepositoryTest {
 
     @Autowired
     MemberRepository memberRepository;
-    
+
+    @Autowired
+    TeamNamePropagationJob teamNamePropagationJob;
+
+    @Autowired
+    UsernameNgramIndex usernameIndex;
+
+    @Autowired
+    QueryBudget queryBudget;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
     @Test
     public void basicTest() throws Exception {
         // given
@@ -112,6 +137,131 @@ class MemberRepositoryTest {
 
     }
 
+    @Test
+    public void renameTeam() throws Exception {
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        Member memberA = new Member("member1", 10, teamA);
+        Member memberB = new Member("member2", 20, teamA);
+        em.persist(memberA);
+        em.persist(memberB);
+
+        // When
+        long updated = teamNamePropagationJob.rename(teamA.getId(), "teamC");
+
+        // Then
+        assertThat(updated).isEqualTo(2);
+        assertThat(memberRepository.findAll()).extracting("teamName").containsOnly("teamC");
+    }
+
+    @Test
+    public void renameTeamToNullAndUnknownTeam() throws Exception {
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+
+        // When
+        long updated = teamNamePropagationJob.rename(teamA.getId(), null);
+        teamNamePropagationJob.propagateAll();
+
+        // Then
+        assertThat(updated).isEqualTo(1);
+        assertThat(em.createQuery("select m.teamName from Member m where m.team = :team", String.class)
+                .setParameter("team", teamA)
+                .getResultList()).containsOnlyNulls();
+        assertThatThrownBy(() -> teamNamePropagationJob.rename(-1L, "teamC"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("team not found");
+    }
+
+    @Test
+    public void renameTeamKeepsCallerPersistenceContext() throws Exception {
+        // given (호출한 쪽 트랜잭션에 아직 flush 되지 않은 변경이 있다)
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member memberA = new Member("member1", 10, teamA);
+        em.persist(memberA);
+        em.flush();
+        memberA.setAge(11);
+
+        // When
+        teamNamePropagationJob.rename(teamA.getId(), "teamC");
+
+        // Then (영속성 컨텍스트를 비우지 않고, 올라와 있던 회원은 새 이름으로 다시 읽힌다)
+        assertThat(em.contains(memberA)).isTrue();
+        assertThat(memberA.getTeamName()).isEqualTo("teamC");
+        assertThat(memberA.getAge()).isEqualTo(11);
+        em.flush();
+        em.clear();
+        Member reloaded = em.find(Member.class, memberA.getId());
+        assertThat(reloaded.getTeamName()).isEqualTo("teamC");
+        assertThat(reloaded.getAge()).isEqualTo(11);
+    }
+
+    @Test
+    public void searchUsernameStartsWithAndContains() throws Exception {
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("alice", 10, teamA));
+        em.persist(new Member("alicia", 30, teamA));
+        em.persist(new Member("malice", 40, teamA));
+        em.flush();
+        usernameIndex.rebuild();
+
+        // 재구성 이후 저장된 회원도 찾아야 한다.
+        em.persist(new Member("alicent", 35, teamA));
+        em.flush();
+        em.clear();
+
+        // When
+        MemberSearchCondition startsWith = new MemberSearchCondition();
+        startsWith.setUsernameStartsWith("ali");
+        startsWith.setAgeGoe(20);
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("lic");
+
+        // Then
+        assertThat(usernameIndex.isUsable()).isTrue();
+        assertThat(memberRepository.search(startsWith)).extracting("username")
+                .containsExactlyInAnyOrder("alicia", "alicent");
+        assertThat(memberRepository.search(contains)).extracting("username")
+                .containsExactlyInAnyOrder("alice", "alicia", "malice", "alicent");
+    }
+
+    @Test
+    public void usernameIndexInvalidatedOnlyByUsernameWrites() throws Exception {
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member bob = new Member("bob", 10, teamA);
+        em.persist(bob);
+        em.flush();
+        usernameIndex.rebuild();
+
+        // When (엔티티 이름 변경, username 을 건드리지 않는 벌크 update)
+        bob.setUsername("roberta");
+        em.flush();
+        queryFactory.update(member).set(member.age, member.age.add(1)).execute();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("bert");
+
+        // Then
+        assertThat(usernameIndex.isUsable()).isTrue();
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("roberta");
+
+        // username 을 쓰는 벌크 update 는 재구성 전까지 색인을 끈다.
+        queryFactory.update(member).set(member.username, "robert").where(member.id.eq(bob.getId())).execute();
+        assertThat(usernameIndex.isUsable()).isFalse();
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("robert");
+    }
+
     @Test
     public void querydslPredicateExecutor() throws Exception {
         // given
@@ -122,4 +272,140 @@ class MemberRepositoryTest {
         // Then
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchPageComplexBudget() throws Exception {
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        // When
+        // Then
+        // 내용 + count 두 문장, DTO 로 바로 조회하므로 엔티티는 로드하지 않는다.
+        Page<MemberTeamDto> page = queryBudget.expect()
+                .maxStatements(2)
+                .maxRows(4)
+                .maxEntitiesLoaded(0)
+                .run(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 3)));
+        assertThat(page.getContent()).hasSize(3);
+
+        // 마지막 페이지가 다 차지 않으면 count 를 생략한다.
+        queryBudget.expect()
+                .maxStatements(1)
+                .run(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 20)));
+    }
+
+    @Test
+    public void estimatedCountExactBelowThreshold() throws Exception {
+        // given
+        Team teamA = new Team("estimateTeamA");
+        em.persist(teamA);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("estimate" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("estimateTeamA");
+
+        // When
+        EstimatedPage<MemberTeamDto> page = memberRepository.searchPageEstimated(condition, PageRequest.of(0, 5));
+
+        // Then
+        assertThat(page.isTotalExact()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(20);
+        assertThat(page.getContent()).hasSize(5);
+    }
+
+    @Test
+    public void estimatedCountExactWhenSampleCoversAllIds() throws Exception {
+        // given
+        // 3000 건: threshold(1000) 는 넘지만 표본 구간이 id 범위 전체를 덮으므로 그대로 센 값이 정확한 건수
+        Team teamA = new Team("estimateTeamA");
+        Team teamB = new Team("estimateTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.flush();
+        insertMembers(1_000_000, 3_000, teamA, teamB);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("estimateTeamA");
+
+        // When
+        EstimatedPage<MemberTeamDto> page = memberRepository.searchPageEstimated(condition, PageRequest.of(0, 10));
+
+        // Then
+        assertThat(page.isTotalExact()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(1_500);
+        assertThat(page.getTotalErrorBound()).isZero();
+    }
+
+    // ROW_COUNT_ESTIMATE 가 커밋된 행 기준이 되도록 커밋하고, 끝나면 지운다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void estimatedCountSampled() throws Exception {
+        // given
+        Long[] teamIds = transactionTemplate.execute(status -> {
+            Team teamA = new Team("sampledTeamA");
+            Team teamB = new Team("sampledTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            return new Long[]{teamA.getId(), teamB.getId()};
+        });
+        long maxMemberId = transactionTemplate.execute(status -> ((Number) em.createNativeQuery(
+                "select coalesce(max(member_id), 0) from member").getSingleResult()).longValue());
+        // 시퀀스가 준 id 들 바로 뒤부터 연속으로 채워 id 밀도가 1 에 가깝게
+        long base = Math.max(maxMemberId, teamIds[1]) + 1;
+        int rows = 30_000;
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertMembers(base, rows,
+                    em.find(Team.class, teamIds[0]), em.find(Team.class, teamIds[1])));
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("sampledTeamA");
+
+            // When
+            EstimatedPage<MemberTeamDto> page = transactionTemplate.execute(status ->
+                    memberRepository.searchPageEstimated(condition, PageRequest.of(0, 10)));
+
+            // Then
+            // 표본 비율로 추정하므로 정확하지 않다고 알리고, 오차 범위를 같이 준다.
+            assertThat(page.isTotalExact()).isFalse();
+            assertThat(page.getTotalErrorBound()).isPositive();
+            assertThat(Math.abs(page.getTotalElements() - rows / 2)).isLessThanOrEqualTo(3 * page.getTotalErrorBound());
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                em.createNativeQuery("delete from member where member_id between ?1 and ?2")
+                        .setParameter(1, base)
+                        .setParameter(2, base + rows)
+                        .executeUpdate();
+                em.createQuery("delete from Team t where t.name like 'sampled%'").executeUpdate();
+            });
+        }
+    }
+
+    // 짝수 번째는 teamA, 홀수 번째는 teamB 로 id 가 연속된 회원을 한 문장으로 넣는다.
+    private void insertMembers(long firstId, int count, Team teamA, Team teamB) {
+        em.createNativeQuery("insert into member (member_id, username, age, team_id, team_name)"
+                        + " select x, 'estimate' || x, mod(x, 100),"
+                        + " case when mod(x - ?1, 2) = 0 then ?2 else ?3 end,"
+                        + " case when mod(x - ?1, 2) = 0 then ?4 else ?5 end"
+                        + " from system_range(?1, ?6)")
+                .setParameter(1, firstId)
+                .setParameter(2, teamA.getId())
+                .setParameter(3, teamB.getId())
+                .setParameter(4, teamA.getName())
+                .setParameter(5, teamB.getName())
+                .setParameter(6, firstId + count - 1)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,124 @@
+package com.teddy.study.querydsl.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(200);
+    static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+    static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void increasesOnlyWhenBusy() throws Exception {
+        // given
+        AdaptiveConcurrencyLimit limit = limit(10, 2, 200);
+
+        // When (한도의 절반 미만만 쓰는 동안)
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire(false);
+            limit.release(false, FAST, false);
+        }
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(10);
+
+        // When (절반 이상 쓰는 동안)
+        acquire(limit, 5);
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire(false);
+            limit.release(false, FAST, false);
+        }
+
+        // Then (1 / limit 씩 늘어난다)
+        assertThat(limit.getLimit()).isEqualTo(11);
+    }
+
+    @Test
+    public void backsOffOncePerWindow() throws Exception {
+        // given
+        AdaptiveConcurrencyLimit limit = limit(100, 2, 200);
+        acquire(limit, 50);
+
+        // When (한꺼번에 느리게 끝난 응답)
+        for (int i = 0; i < 20; i++) {
+            limit.release(false, SLOW, false);
+        }
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(90);
+
+        // When (다음 구간, 실패도 과부하 신호)
+        clock.addAndGet(WINDOW);
+        limit.release(false, FAST, true);
+        limit.release(false, SLOW, false);
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(81);
+    }
+
+    @Test
+    public void staysWithinBounds() throws Exception {
+        // given
+        AdaptiveConcurrencyLimit shrinking = limit(10, 4, 12);
+        AdaptiveConcurrencyLimit growing = limit(10, 4, 12);
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            clock.addAndGet(WINDOW);
+            shrinking.tryAcquire(false);
+            shrinking.release(false, SLOW, false);
+        }
+        acquire(growing, 10);
+        for (int i = 0; i < 1_000; i++) {
+            growing.release(false, FAST, false);
+            growing.tryAcquire(false);
+        }
+
+        // Then
+        assertThat(shrinking.getLimit()).isEqualTo(4);
+        assertThat(growing.getLimit()).isEqualTo(12);
+        assertThat(growing.tryAcquire(false)).isTrue();
+        assertThat(growing.tryAcquire(false)).isTrue();
+        assertThat(growing.tryAcquire(false)).isFalse();
+    }
+
+    @Test
+    public void expensiveRequestsLimitedToShare() throws Exception {
+        // given (한도 20 의 25%)
+        AdaptiveConcurrencyLimit limit = limit(20, 2, 200);
+
+        // When
+        int expensive = acquire(limit, 10, true);
+
+        // Then
+        assertThat(expensive).isEqualTo(5);
+        assertThat(limit.tryAcquire(false)).isTrue();
+        assertThat(limit.getInFlight()).isEqualTo(6);
+    }
+
+    private AdaptiveConcurrencyLimit limit(int initial, int min, int max) {
+        return new AdaptiveConcurrencyLimit(initial, min, max, THRESHOLD, 0.9, WINDOW, 0.25, clock::get);
+    }
+
+    private static void acquire(AdaptiveConcurrencyLimit limit, int count) {
+        assertThat(acquire(limit, count, false)).isEqualTo(count);
+    }
+
+    private static int acquire(AdaptiveConcurrencyLimit limit, int count, boolean expensive) {
+        int acquired = 0;
+        for (int i = 0; i < count; i++) {
+            if (limit.tryAcquire(expensive)) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+}
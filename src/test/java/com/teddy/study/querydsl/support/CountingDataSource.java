@@ -0,0 +1,89 @@
+package com.teddy.study.querydsl.support;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * {@link QueryBudget} 블록 안에서 만든 문장의 실행 횟수와 ResultSet 에서 읽은 행 수를 {@link QueryUsage} 에 센다.
+ * 블록 밖에서 만든 문장은 감싸지 않는다.
+ */
+class CountingDataSource extends DelegatingDataSource {
+
+    CountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection connection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    QueryUsage usage = QueryUsage.current();
+                    if (usage != null && result instanceof Statement) {
+                        if (args != null && args.length > 0 && args[0] instanceof String) {
+                            usage.prepared((String) args[0]);
+                        }
+                        return statement((Statement) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement statement(Statement target) {
+        Class<?> type = target instanceof CallableStatement ? CallableStatement.class
+                : target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    QueryUsage usage = QueryUsage.current();
+                    if (usage != null && method.getName().startsWith("execute")) {
+                        usage.executed();
+                    }
+                    if (result instanceof ResultSet) {
+                        return resultSet((ResultSet) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static ResultSet resultSet(ResultSet target) {
+        return (ResultSet) Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                        QueryUsage usage = QueryUsage.current();
+                        if (usage != null) {
+                            usage.rowRead();
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
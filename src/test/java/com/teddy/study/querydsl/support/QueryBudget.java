@@ -0,0 +1,154 @@
+package com.teddy.study.querydsl.support;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 블록 안에서 실행된 SQL 문장 수, 읽은 행 수, 로드된 엔티티 수, 할당한 바이트를 재고 상한을 검사한다.
+ * {@code @Import(QueryBudgetConfig.class)} 한 테스트에서 주입받아 쓴다.
+ *
+ * <pre>
+ * Page&lt;MemberTeamDto&gt; page = queryBudget.expect()
+ *         .maxStatements(2)
+ *         .maxEntitiesLoaded(0)
+ *         .run(() -&gt; memberRepository.searchPageComplex(condition, pageable));
+ * </pre>
+ * 문장 수에는 블록 안의 자동 flush 도 들어가므로, 재기 전에 em.flush() 해 둔다.
+ */
+public class QueryBudget {
+
+    private final Statistics statistics;
+    private final com.sun.management.ThreadMXBean threadMXBean;
+
+    public QueryBudget(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.threadMXBean = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()
+                : null;
+    }
+
+    public Expectation expect() {
+        return new Expectation();
+    }
+
+    public QueryUsage measure(Runnable block) {
+        return record(() -> {
+            block.run();
+            return null;
+        }).usage;
+    }
+
+    private <T> Measured<T> record(Supplier<T> block) {
+        // 통계는 기본으로 꺼져 있다. (test 프로파일에 generate_statistics 없음)
+        // 컨텍스트를 같이 쓰는 다른 테스트에 영향이 없도록 재고 나면 원래대로 돌린다.
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        long loadsBefore = statistics.getEntityLoadCount();
+        long allocatedBefore = allocatedBytes();
+
+        QueryUsage usage = QueryUsage.begin();
+        T result;
+        try {
+            result = block.get();
+        } finally {
+            long allocatedAfter = allocatedBytes();
+            usage.end(statistics.getEntityLoadCount() - loadsBefore,
+                    allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore);
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+        return new Measured<>(result, usage);
+    }
+
+    private long allocatedBytes() {
+        if (threadMXBean == null || !threadMXBean.isThreadAllocatedMemorySupported()
+                || !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static final class Measured<T> {
+
+        private final T result;
+        private final QueryUsage usage;
+
+        private Measured(T result, QueryUsage usage) {
+            this.result = result;
+            this.usage = usage;
+        }
+    }
+
+    public final class Expectation {
+
+        private int maxStatements = Integer.MAX_VALUE;
+        private long maxRows = Long.MAX_VALUE;
+        private long maxEntitiesLoaded = Long.MAX_VALUE;
+        private long maxAllocatedBytes = Long.MAX_VALUE;
+
+        private Expectation() {
+        }
+
+        public Expectation maxStatements(int statements) {
+            this.maxStatements = statements;
+            return this;
+        }
+
+        public Expectation maxRows(long rows) {
+            this.maxRows = rows;
+            return this;
+        }
+
+        public Expectation maxEntitiesLoaded(long entities) {
+            this.maxEntitiesLoaded = entities;
+            return this;
+        }
+
+        /**
+         * JVM 이 스레드별 할당량을 지원하지 않으면 검사하지 않는다.
+         */
+        public Expectation maxAllocatedBytes(long bytes) {
+            this.maxAllocatedBytes = bytes;
+            return this;
+        }
+
+        /**
+         * @return block 의 결과
+         * @throws AssertionError 상한을 넘으면 (실행된 SQL 목록 포함)
+         */
+        public <T> T run(Supplier<T> block) {
+            Measured<T> measured = record(block);
+            QueryUsage usage = measured.usage;
+
+            List<String> exceeded = new ArrayList<>();
+            if (usage.getStatements() > maxStatements) {
+                exceeded.add("statements " + usage.getStatements() + " > " + maxStatements);
+            }
+            if (usage.getRows() > maxRows) {
+                exceeded.add("rows " + usage.getRows() + " > " + maxRows);
+            }
+            if (usage.getEntitiesLoaded() > maxEntitiesLoaded) {
+                exceeded.add("entities loaded " + usage.getEntitiesLoaded() + " > " + maxEntitiesLoaded);
+            }
+            if (usage.getAllocatedBytes() > maxAllocatedBytes) {
+                exceeded.add("allocated bytes " + usage.getAllocatedBytes() + " > " + maxAllocatedBytes);
+            }
+            if (!exceeded.isEmpty()) {
+                throw new AssertionError("query budget exceeded: " + String.join(", ", exceeded) + "\n" + usage);
+            }
+            return measured.result;
+        }
+
+        public void run(Runnable block) {
+            run(() -> {
+                block.run();
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.teddy.study.querydsl.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+/**
+ * DataSource 를 {@link CountingDataSource} 로 감싸고 {@link QueryBudget} 을 등록한다.
+ */
+@TestConfiguration
+public class QueryBudgetConfig {
+
+    @Bean
+    public static BeanPostProcessor countingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource && !(bean instanceof CountingDataSource)
+                        ? new CountingDataSource((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public QueryBudget queryBudget(EntityManagerFactory entityManagerFactory) {
+        return new QueryBudget(entityManagerFactory);
+    }
+}
@@ -0,0 +1,87 @@
+package com.teddy.study.querydsl.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link QueryBudget} 으로 잰 블록 하나의 사용량.
+ * SQL 문장 수와 읽은 행 수는 이 스레드가 실행한 것만, 엔티티 로드 수는 Hibernate 통계(전체) 차이다.
+ */
+public class QueryUsage {
+
+    private static final ThreadLocal<QueryUsage> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long rows;
+    private long entitiesLoaded;
+    private long allocatedBytes = -1;
+    private final List<String> sql = new ArrayList<>();
+
+    static QueryUsage current() {
+        return CURRENT.get();
+    }
+
+    static QueryUsage begin() {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("QueryBudget blocks cannot be nested");
+        }
+        QueryUsage usage = new QueryUsage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    void end(long entitiesLoaded, long allocatedBytes) {
+        CURRENT.remove();
+        this.entitiesLoaded = entitiesLoaded;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    void prepared(String statement) {
+        sql.add(statement);
+    }
+
+    void executed() {
+        statements++;
+    }
+
+    void rowRead() {
+        rows++;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    /**
+     * @return 블록 안에서 이 스레드가 할당한 바이트, JVM 이 지원하지 않으면 -1
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public List<String> getSql() {
+        return Collections.unmodifiableList(sql);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder()
+                .append("statements=").append(statements)
+                .append(", rows=").append(rows)
+                .append(", entitiesLoaded=").append(entitiesLoaded)
+                .append(", allocatedBytes=").append(allocatedBytes);
+        for (String statement : sql) {
+            text.append("\n  ").append(statement.replaceAll("\\s+", " "));
+        }
+        return text.toString();
+    }
+}